@@ -1,12 +1,10 @@
-import java.awt.*;
-
 public class AutoplayAI {
     private static final double WEIGHT_AGGREGATE_HEIGHT = -0.510066;
     private static final double WEIGHT_COMPLETED_LINES = 0.760666;
     private static final double WEIGHT_HOLES = -0.35663;
     private static final double WEIGHT_BUMPINESS = -0.184483;
 
-    public AutoplayAI(Board boardRef) {
+    public AutoplayAI() {
 
     }
 
@@ -14,6 +12,8 @@ public class AutoplayAI {
         int x, y;
         int rotation;
         double score;
+        int candidates;
+        long decisionNanos;
 
         public Move(int x, int y, int rotation, double score) {
             this.x = x;
@@ -23,23 +23,26 @@ public class AutoplayAI {
         }
     }
 
-    public Move findBestMove(Tetromino currentPiece, Color[][] currentBoardState) {
+    public Move findBestMove(Tetromino currentPiece, Playfield currentBoardState) {
+        long start = System.nanoTime();
         Move bestMove = null;
         double bestScore = Double.NEGATIVE_INFINITY;
+        Playfield tempBoard = new Playfield(Game.BOARD_WIDTH, Game.BOARD_HEIGHT);
+        int candidates = 0;
 
         for (int r = 0; r < 4; r++) {
-            currentPiece.setRotation(r);
-            int[][] pieceShape = currentPiece.getCurrentShape();
+            int[][] pieceShape = currentPiece.getShapeForRotation(r);
 
-            for (int x = -pieceShape[0].length + 1; x < Board.getBoardWidth(); x++) {
-                Color[][] tempBoard = copyBoard(currentBoardState);
-                int landingY = simulateDrop(currentPiece, x, tempBoard);
+            for (int x = -pieceShape[0].length + 1; x < Game.BOARD_WIDTH; x++) {
+                tempBoard.copyFrom(currentBoardState);
+                int landingY = simulateDrop(pieceShape, x, tempBoard);
 
                 if (landingY == -1) continue;
+                candidates++;
 
-                placePieceOnTempBoard(tempBoard, currentPiece, x, landingY);
+                placePieceOnTempBoard(tempBoard, pieceShape, currentPiece.cellValue(), x, landingY);
 
-                double score = evaluateBoard(tempBoard);
+                double score = evaluateBoard(tempBoard, landingY, landingY + pieceShape.length - 1);
 
                 if (score > bestScore) {
                     bestScore = score;
@@ -47,41 +50,43 @@ public class AutoplayAI {
                 }
             }
         }
+        if (bestMove != null) {
+            bestMove.candidates = candidates;
+            bestMove.decisionNanos = System.nanoTime() - start;
+        }
         return bestMove;
     }
 
-    private int simulateDrop(Tetromino piece, int startX, Color[][] boardState) {
+    private int simulateDrop(int[][] shape, int startX, Playfield boardState) {
         int currentY = 0;
-        int[][] shape = piece.getCurrentShape();
 
         for (int r = 0; r < shape.length; r++) {
             for (int c = 0; c < shape[r].length; c++) {
                 if (shape[r][c] != 0) {
                     int boardX = startX + c;
-                    if (boardX < 0 || boardX >= Board.getBoardWidth()) return -1;
-                    if (currentY + r < Board.getBoardHeight() && boardState[currentY + r][boardX] != null)
+                    if (boardX < 0 || boardX >= Game.BOARD_WIDTH) return -1;
+                    if (currentY + r < Game.BOARD_HEIGHT && boardState.get(boardX, currentY + r) != 0)
                         return -1;
                 }
             }
         }
 
-        while (canPlace(piece, startX, currentY + 1, boardState)) {
+        while (canPlace(shape, startX, currentY + 1, boardState)) {
             currentY++;
         }
         return currentY;
     }
 
-    private boolean canPlace(Tetromino piece, int x, int y, Color[][] boardState) {
-        int[][] shape = piece.getCurrentShape();
+    private boolean canPlace(int[][] shape, int x, int y, Playfield boardState) {
         for (int r = 0; r < shape.length; r++) {
             for (int c = 0; c < shape[r].length; c++) {
                 if (shape[r][c] != 0) {
                     int boardX = x + c;
                     int boardY = y + r;
-                    if (boardX < 0 || boardX >= Board.getBoardWidth() || boardY < 0 || boardY >= Board.getBoardHeight()) {
+                    if (boardX < 0 || boardX >= Game.BOARD_WIDTH || boardY < 0 || boardY >= Game.BOARD_HEIGHT) {
                         return false;
                     }
-                    if (boardState[boardY][boardX] != null) {
+                    if (boardState.get(boardX, boardY) != 0) {
                         return false;
                     }
                 }
@@ -90,13 +95,12 @@ public class AutoplayAI {
         return true;
     }
 
-    private void placePieceOnTempBoard(Color[][] board, Tetromino piece, int x, int y) {
-        int[][] shape = piece.getCurrentShape();
+    private void placePieceOnTempBoard(Playfield board, int[][] shape, int value, int x, int y) {
         for (int r = 0; r < shape.length; r++) {
             for (int c = 0; c < shape[r].length; c++) {
                 if (shape[r][c] != 0) {
-                    if (y + r >= 0 && y + r < Board.getBoardHeight() && x + c >= 0 && x + c < Board.getBoardWidth()) {
-                        board[y + r][x + c] = piece.color;
+                    if (y + r >= 0 && y + r < Game.BOARD_HEIGHT && x + c >= 0 && x + c < Game.BOARD_WIDTH) {
+                        board.set(x + c, y + r, value);
                     } else {
                     }
                 }
@@ -104,22 +108,20 @@ public class AutoplayAI {
         }
     }
 
-    private double evaluateBoard(Color[][] boardState) {
-        int completedLines = countAndClearCompletedLines(boardState);
+    private double evaluateBoard(Playfield boardState, int fromY, int toY) {
+        int completedLines = boardState.clearFullRows(fromY, toY);
         int aggregateHeight = getAggregateHeight(boardState);
         int holes = getHoles(boardState);
         int bumpiness = getBumpiness(boardState);
 
-        for (int c = 0; c < Board.getBoardWidth(); c++) {
-            if (boardState[0][c] != null && aggregateHeight > Board.getBoardHeight() - 2) {
-                return Double.NEGATIVE_INFINITY;
-            }
+        if (!boardState.isRowEmpty(0) && aggregateHeight > Game.BOARD_HEIGHT - 2) {
+            return Double.NEGATIVE_INFINITY;
         }
 
         return WEIGHT_AGGREGATE_HEIGHT * aggregateHeight + WEIGHT_COMPLETED_LINES * completedLines + WEIGHT_HOLES * holes + WEIGHT_BUMPINESS * bumpiness;
     }
 
-    private int getAggregateHeight(Color[][] board) {
+    private int getAggregateHeight(Playfield board) {
         int totalHeight = 0;
         int[] heights = getColumnHeights(board);
         for (int height : heights) {
@@ -128,35 +130,15 @@ public class AutoplayAI {
         return totalHeight;
     }
 
-    private int countAndClearCompletedLines(Color[][] board) {
-        int lines = 0;
-        for (int r = Board.getBoardHeight() - 1; r >= 0; r--) {
-            boolean lineFull = true;
-            for (int c = 0; c < Board.getBoardWidth(); c++) {
-                if (board[r][c] == null) {
-                    lineFull = false;
-                    break;
-                }
-            }
-            if (lineFull) {
-                lines++;
-                for (int k = r; k > 0; k--) {
-                    System.arraycopy(board[k - 1], 0, board[k], 0, Board.getBoardWidth());
-                }
-                for (int c = 0; c < Board.getBoardWidth(); c++) board[0][c] = null;
-            }
-        }
-        return lines;
-    }
-
-    private int getHoles(Color[][] board) {
+    private int getHoles(Playfield board) {
         int holes = 0;
-        for (int c = 0; c < Board.getBoardWidth(); c++) {
-            boolean blockFound = false;
-            for (int r = 0; r < Board.getBoardHeight(); r++) {
-                if (board[r][c] != null) {
-                    blockFound = true;
-                } else if (blockFound && board[r][c] == null) {
+        boolean[] blockFound = new boolean[Game.BOARD_WIDTH];
+        for (int r = 0; r < Game.BOARD_HEIGHT; r++) {
+            int[] row = board.row(r);
+            for (int c = 0; c < Game.BOARD_WIDTH; c++) {
+                if (row[c] != 0) {
+                    blockFound[c] = true;
+                } else if (blockFound[c]) {
                     holes++;
                 }
             }
@@ -164,7 +146,7 @@ public class AutoplayAI {
         return holes;
     }
 
-    private int getBumpiness(Color[][] board) {
+    private int getBumpiness(Playfield board) {
         int bumpiness = 0;
         int[] heights = getColumnHeights(board);
         for (int i = 0; i < heights.length - 1; i++) {
@@ -173,24 +155,17 @@ public class AutoplayAI {
         return bumpiness;
     }
 
-    private int[] getColumnHeights(Color[][] board) {
-        int[] heights = new int[Board.getBoardWidth()];
-        for (int c = 0; c < Board.getBoardWidth(); c++) {
-            for (int r = 0; r < Board.getBoardHeight(); r++) {
-                if (board[r][c] != null) {
-                    heights[c] = Board.getBoardHeight() - r;
-                    break;
+    private int[] getColumnHeights(Playfield board) {
+        int[] heights = new int[Game.BOARD_WIDTH];
+        for (int r = Game.BOARD_HEIGHT - 1; r >= 0; r--) {
+            if (board.isRowEmpty(r)) continue;
+            int[] row = board.row(r);
+            for (int c = 0; c < Game.BOARD_WIDTH; c++) {
+                if (row[c] != 0) {
+                    heights[c] = Game.BOARD_HEIGHT - r;
                 }
             }
         }
         return heights;
     }
-
-    private Color[][] copyBoard(Color[][] original) {
-        Color[][] copy = new Color[original.length][];
-        for (int i = 0; i < original.length; i++) {
-            copy[i] = original[i].clone();
-        }
-        return copy;
-    }
 }
\ No newline at end of file
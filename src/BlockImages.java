@@ -0,0 +1,55 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered block images for one block size, indexed by cell value, so
+ * painting a cell is a single image copy instead of a fill plus four bevel
+ * lines with freshly derived colors. Index 0 is the empty cell.
+ */
+public class BlockImages {
+
+    private static final Color EMPTY_COLOR = Color.BLACK;
+    private static final Color GARBAGE_COLOR = Color.GRAY;
+
+    private final BufferedImage[] images;
+
+    public BlockImages(int size) {
+        this.images = new BufferedImage[Game.GARBAGE_CELL + 1];
+
+        images[0] = createEmpty(size);
+        for (Tetromino piece : Tetromino.values()) {
+            images[piece.cellValue()] = createBlock(size, new Color(piece.rgb));
+        }
+        images[Game.GARBAGE_CELL] = createBlock(size, GARBAGE_COLOR);
+    }
+
+    public void draw(Graphics g, int x, int y, int cellValue) {
+        g.drawImage(images[cellValue], x, y, null);
+    }
+
+    private static BufferedImage createEmpty(int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        g.setColor(EMPTY_COLOR);
+        g.fillRect(0, 0, size, size);
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage createBlock(int size, Color color) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        g.setColor(color);
+        g.fillRect(1, 1, size - 2, size - 2);
+
+        g.setColor(color.brighter());
+        g.drawLine(0, size - 1, 0, 0);
+        g.drawLine(0, 0, size - 1, 0);
+
+        g.setColor(color.darker());
+        g.drawLine(1, size - 1, size - 1, size - 1);
+        g.drawLine(size - 1, size - 1, size - 1, 1);
+        g.dispose();
+        return image;
+    }
+}
@@ -4,14 +4,18 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.Arrays;
 
 public class Board extends JPanel implements ActionListener {
 
-    private static final int BOARD_WIDTH = 10;
-    private static final int BOARD_HEIGHT = 20;
+    private static final int BOARD_WIDTH = Game.BOARD_WIDTH;
+    private static final int BOARD_HEIGHT = Game.BOARD_HEIGHT;
     private static final int BLOCK_SIZE = 30;
     private static final int INITIAL_DELAY = 600;
+    private static final int SURVIVAL_GARBAGE_ROWS = 1;
+    private static final int SURVIVAL_GARBAGE_EVERY_PIECES = 8;
+
+    private static final BlockImages BLOCKS = new BlockImages(BLOCK_SIZE);
+    private static final Color GRID_COLOR = new Color(50, 50, 50);
 
     private Timer timer;
     private boolean isFallingFinished = false;
@@ -19,17 +23,9 @@ public class Board extends JPanel implements ActionListener {
     private boolean isPaused = false;
     private boolean isAutoplay = false;
 
-    private int score = 0;
-    private int linesCleared = 0;
-
-    private Tetromino currentPiece;
-    private int currentX = 0;
-    private int currentY = 0;
-
-    private Tetromino nextPiece;
-
-    private final Color[][] board;
+    private final Game game;
     private final AutoplayAI ai;
+    private final PerfOverlay perfOverlay;
 
     private JLabel scoreLabel;
     private JLabel linesLabel;
@@ -41,8 +37,9 @@ public class Board extends JPanel implements ActionListener {
         setPreferredSize(new Dimension(BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE));
         setLayout(new BorderLayout());
 
-        ai = new AutoplayAI(this);
-        board = new Color[BOARD_HEIGHT][BOARD_WIDTH];
+        ai = new AutoplayAI();
+        game = new Game();
+        perfOverlay = new PerfOverlay(this);
         timer = new Timer(INITIAL_DELAY, this);
 
         addKeyListener(new TAdapter());
@@ -58,12 +55,9 @@ public class Board extends JPanel implements ActionListener {
         if (isPaused) return;
         isStarted = true;
         isFallingFinished = false;
-        score = 0;
-        linesCleared = 0;
-        clearBoard();
-        newPiece();
+        game.start();
         timer.start();
-        updateLabels();
+        afterMove();
     }
 
     public void pause() {
@@ -93,35 +87,51 @@ public class Board extends JPanel implements ActionListener {
         }
     }
 
+    /**
+     * Toggles survival mode, which pushes a garbage row up from the bottom
+     * every few pieces.
+     */
+    public void toggleSurvival() {
+        if (game.isGarbageEnabled()) {
+            game.setGarbage(0, 0);
+        } else {
+            game.setGarbage(SURVIVAL_GARBAGE_ROWS, SURVIVAL_GARBAGE_EVERY_PIECES);
+        }
+    }
+
+    public boolean isSurvival() {
+        return game.isGarbageEnabled();
+    }
+
+    public void togglePerfOverlay() {
+        perfOverlay.toggle();
+    }
+
+    public boolean isPerfOverlayVisible() {
+        return perfOverlay.isVisible();
+    }
+
     private void updateLabels() {
-        if (scoreLabel != null) scoreLabel.setText("Score: " + score);
-        if (linesLabel != null) linesLabel.setText("Lines: " + linesCleared);
+        if (scoreLabel != null) scoreLabel.setText("Score: " + game.getScore());
+        if (linesLabel != null) linesLabel.setText("Lines: " + game.getLinesCleared());
         if (nextPiecePanel != null) {
             nextPiecePanel.repaint();
         }
     }
 
-    private void newPiece() {
-        if (nextPiece == null) {
-            currentPiece = Tetromino.getRandomPiece();
-        } else {
-            currentPiece = nextPiece;
-        }
-        nextPiece = Tetromino.getRandomPiece();
-        nextPiece.setRotation(0);
-
-        currentPiece.setRotation(0);
-        currentX = BOARD_WIDTH / 2 - currentPiece.getCurrentShape()[0].length / 2;
-        currentY = 0;
-
-        if (!canMove(currentPiece, currentX, currentY, currentPiece.getRotation())) {
+    /**
+     * Syncs the view with the game after any move and shows the game over
+     * screen the first time the game reports it has ended.
+     */
+    private void afterMove() {
+        updateLabels();
+        if (game.isOver() && !isFallingFinished) {
             gameOver();
         }
-        updateLabels();
+        repaint();
     }
 
     private void gameOver() {
-        currentPiece = null;
         timer.stop();
         isStarted = false;
         isFallingFinished = true;
@@ -133,82 +143,18 @@ public class Board extends JPanel implements ActionListener {
         add(gameOverLabel, BorderLayout.CENTER);
         revalidate();
         repaint();
-        System.out.println("Game Over! Score: " + score);
-    }
-
-    private void clearBoard() {
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            Arrays.fill(board[i], null);
-        }
-    }
-
-    private void pieceDropped() {
-        placePieceOnBoard();
-        removeFullLines();
-        if (!isFallingFinished) {
-            newPiece();
-        }
-        repaint();
-    }
-
-    private void placePieceOnBoard() {
-        int[][] shape = currentPiece.getCurrentShape();
-        for (int i = 0; i < shape.length; i++) {
-            for (int j = 0; j < shape[i].length; j++) {
-                if (shape[i][j] != 0) {
-                    board[currentY + i][currentX + j] = currentPiece.color;
-                }
-            }
-        }
-    }
-
-    private void removeFullLines() {
-        int numFullLines = 0;
-        for (int i = BOARD_HEIGHT - 1; i >= 0; i--) {
-            boolean lineIsFull = true;
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (board[i][j] == null) {
-                    lineIsFull = false;
-                    break;
-                }
-            }
-            if (lineIsFull) {
-                numFullLines++;
-                for (int k = i; k > 0; k--) {
-                    System.arraycopy(board[k - 1], 0, board[k], 0, BOARD_WIDTH);
-                }
-                Arrays.fill(board[0], null);
-                i++;
-            }
-        }
-
-        if (numFullLines > 0) {
-            linesCleared += numFullLines;
-            if (numFullLines == 1) score += 100;
-            else if (numFullLines == 2) score += 300;
-            else if (numFullLines == 3) score += 500;
-            else if (numFullLines == 4) score += 800;
-            updateLabels();
-        }
+        System.out.println("Game Over! Score: " + game.getScore());
     }
 
     private void oneLineDown() {
-        if (!canMove(currentPiece, currentX, currentY + 1, currentPiece.getRotation())) {
-            pieceDropped();
-        } else {
-            currentY++;
-        }
-        repaint();
+        game.oneLineDown();
+        afterMove();
     }
 
     public void hardDrop() {
-        if (!isStarted || isFallingFinished || currentPiece == null) return;
-        int newY = currentY;
-        while (canMove(currentPiece, currentX, newY + 1, currentPiece.getRotation())) {
-            newY++;
-        }
-        currentY = newY;
-        pieceDropped();
+        if (!isStarted || isFallingFinished || game.getCurrentPiece() == null) return;
+        game.hardDrop();
+        afterMove();
     }
 
 
@@ -219,72 +165,41 @@ public class Board extends JPanel implements ActionListener {
         }
 
         if (isAutoplay) {
-            if (currentPiece != null) {
-                AutoplayAI.Move bestMove = ai.findBestMove(currentPiece, board);
-                if (bestMove != null) {
-                    currentPiece.setRotation(bestMove.rotation);
-                    currentX = bestMove.x;
-                    currentY = bestMove.y;
-                    pieceDropped();
-                } else {
-                    gameOver();
-                }
-            } else {
-                newPiece();
+            AutoplayAI.Move move = game.autoplayStep(ai);
+            if (move != null) {
+                perfOverlay.recordDecision(move.decisionNanos, move.candidates);
             }
+            afterMove();
         } else {
             oneLineDown();
         }
-        repaint();
     }
 
 
-    private void tryMove(Tetromino piece, int newX, int newY, int newRotation) {
-        if (canMove(piece, newX, newY, newRotation)) {
-            currentPiece = piece;
-            currentPiece.setRotation(newRotation);
-            currentX = newX;
-            currentY = newY;
+    private void tryMove(int newX, int newY, int newRotation) {
+        if (game.tryMove(newX, newY, newRotation)) {
             repaint();
         }
     }
 
-    public boolean canMove(Tetromino piece, int newX, int newY, int targetRotation) {
-        int[][] shape = piece.getShapeForRotation(targetRotation);
-
-        for (int i = 0; i < shape.length; i++) {
-            for (int j = 0; j < shape[i].length; j++) {
-                if (shape[i][j] != 0) {
-                    int x = newX + j;
-                    int y = newY + i;
-
-                    if (x < 0 || x >= BOARD_WIDTH || y < 0 || y >= BOARD_HEIGHT) {
-                        return false;
-                    }
-                    if (board[y][x] != null) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
-    }
-
 
     @Override
     protected void paintComponent(Graphics g) {
+        long paintStart = System.nanoTime();
         super.paintComponent(g);
         drawBoard(g);
+        Tetromino currentPiece = game.getCurrentPiece();
         if (currentPiece != null && !isFallingFinished) {
-            drawPiece(g, currentPiece, currentX, currentY, currentPiece.getCurrentShape());
+            drawPiece(g, currentPiece, game.getCurrentX(), game.getCurrentY(), game.getCurrentShape());
         }
         if (isPaused && isStarted) {
             drawPauseScreen(g);
         }
+        perfOverlay.paint(g, paintStart);
     }
 
     private void drawBoard(Graphics g) {
-        g.setColor(new Color(50, 50, 50));
+        g.setColor(GRID_COLOR);
         for (int i = 0; i <= BOARD_HEIGHT; i++) {
             g.drawLine(0, i * BLOCK_SIZE, BOARD_WIDTH * BLOCK_SIZE, i * BLOCK_SIZE);
         }
@@ -292,33 +207,37 @@ public class Board extends JPanel implements ActionListener {
             g.drawLine(i * BLOCK_SIZE, 0, i * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
         }
 
+        Playfield playfield = game.getPlayfield();
         for (int i = 0; i < BOARD_HEIGHT; i++) {
+            if (playfield.isRowEmpty(i)) continue;
+            int[] row = playfield.row(i);
             for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (board[i][j] != null) {
-                    drawSquare(g, j * BLOCK_SIZE, i * BLOCK_SIZE, board[i][j]);
+                if (row[j] != 0) {
+                    BLOCKS.draw(g, j * BLOCK_SIZE, i * BLOCK_SIZE, row[j]);
                 }
             }
         }
     }
 
     private void drawPiece(Graphics g, Tetromino piece, int x, int y, int[][] shape) {
-        g.setColor(piece.color);
+        int value = piece.cellValue();
         for (int i = 0; i < shape.length; i++) {
             for (int j = 0; j < shape[i].length; j++) {
                 if (shape[i][j] != 0) {
-                    drawSquare(g, (x + j) * BLOCK_SIZE, (y + i) * BLOCK_SIZE, piece.color);
+                    BLOCKS.draw(g, (x + j) * BLOCK_SIZE, (y + i) * BLOCK_SIZE, value);
                 }
             }
         }
     }
 
     public void drawNextPiece(Graphics g, JPanel panel) {
+        Tetromino nextPiece = game.getNextPiece();
         if (nextPiece == null) return;
         g.setColor(panel.getBackground());
         g.fillRect(0, 0, panel.getWidth(), panel.getHeight());
 
-        int[][] shape = nextPiece.getCurrentShape();
-        Color color = nextPiece.color;
+        int[][] shape = nextPiece.getShapeForRotation(0);
+        int value = nextPiece.cellValue();
 
         int panelWidth = panel.getWidth();
         int panelHeight = panel.getHeight();
@@ -333,25 +252,12 @@ public class Board extends JPanel implements ActionListener {
         for (int i = 0; i < shape.length; i++) {
             for (int j = 0; j < shape[i].length; j++) {
                 if (shape[i][j] != 0) {
-                    drawSquare(g, xOffset + j * BLOCK_SIZE, yOffset + i * BLOCK_SIZE, color);
+                    BLOCKS.draw(g, xOffset + j * BLOCK_SIZE, yOffset + i * BLOCK_SIZE, value);
                 }
             }
         }
     }
 
-    private void drawSquare(Graphics g, int x, int y, Color color) {
-        g.setColor(color);
-        g.fillRect(x + 1, y + 1, BLOCK_SIZE - 2, BLOCK_SIZE - 2);
-
-        g.setColor(color.brighter());
-        g.drawLine(x, y + BLOCK_SIZE - 1, x, y);
-        g.drawLine(x, y, x + BLOCK_SIZE - 1, y);
-
-        g.setColor(color.darker());
-        g.drawLine(x + 1, y + BLOCK_SIZE - 1, x + BLOCK_SIZE - 1, y + BLOCK_SIZE - 1);
-        g.drawLine(x + BLOCK_SIZE - 1, y + BLOCK_SIZE - 1, x + BLOCK_SIZE - 1, y + 1);
-    }
-
     private void drawPauseScreen(Graphics g) {
         g.setColor(new Color(0, 0, 0, 150));
         g.fillRect(0, 0, getWidth(), getHeight());
@@ -374,24 +280,28 @@ public class Board extends JPanel implements ActionListener {
     class TAdapter extends KeyAdapter {
         @Override
         public void keyPressed(KeyEvent e) {
-            if (!isStarted || currentPiece == null || isPaused || isAutoplay) {
+            if (!isStarted || game.getCurrentPiece() == null || isPaused || isAutoplay) {
                 return;
             }
 
+            int currentX = game.getCurrentX();
+            int currentY = game.getCurrentY();
+            int rotation = game.getCurrentRotation();
+
             int keycode = e.getKeyCode();
 
             switch (keycode) {
                 case KeyEvent.VK_LEFT:
-                    tryMove(currentPiece, currentX - 1, currentY, currentPiece.getRotation());
+                    tryMove(currentX - 1, currentY, rotation);
                     break;
                 case KeyEvent.VK_RIGHT:
-                    tryMove(currentPiece, currentX + 1, currentY, currentPiece.getRotation());
+                    tryMove(currentX + 1, currentY, rotation);
                     break;
                 case KeyEvent.VK_DOWN:
                     oneLineDown();
                     break;
                 case KeyEvent.VK_UP:
-                    tryMove(currentPiece, currentX, currentY, (currentPiece.getRotation() + 1) % 4);
+                    tryMove(currentX, currentY, (rotation + 1) % 4);
                     break;
                 case KeyEvent.VK_SPACE:
                     hardDrop();
@@ -0,0 +1,374 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Drives a {@link GameServer} with many AI bots over one selector thread.
+ * <p>
+ * Each bot mirrors its board from the server's state deltas, picks a
+ * placement with {@link AutoplayAI} whenever a new piece appears, sends the
+ * rotations, moves and hard drop as commands and restarts after a game over.
+ * At the end it reports throughput and the latency from sending a drop to
+ * receiving the state with the next piece. That latency includes the bots'
+ * own AI, which runs on the client's single selector thread, so with many
+ * bots it mostly measures the client. With {@code --embedded} the report
+ * also shows the server's tick to write latency and checks that the server
+ * accepted every bot.
+ * <p>
+ * Usage: {@code java -cp out BotClient [--host H] [--port P] [--bots N] [--seconds S]
+ * [--tick-ms MS] [--stall-ticks N] [--embedded]}
+ * <br>
+ * With {@code --embedded} the client starts its own server on a free
+ * loopback port, so a full round trip needs a single command.
+ * <p>
+ * Exits with status 1 when the server misbehaves: no state arrives, a drop
+ * or restart is not answered with a new piece within {@code --stall-ticks}
+ * gravity ticks, a mirrored board disagrees with the checksum the server
+ * sent, or the server closes a connection.
+ */
+public class BotClient {
+
+    private static final int INPUT_SIZE = 4 * Protocol.MAX_STATE_SIZE;
+    private static final int OUTPUT_SIZE = 64;
+    private static final int DEFAULT_STALL_TICKS = 4;
+
+    private final Selector selector;
+    private final Bot[] bots;
+    private final AutoplayAI ai = new AutoplayAI();
+    private final long tickMillis;
+    private final int stallTicks;
+
+    private long statesReceived = 0;
+    private long bytesReceived = 0;
+    private long drops = 0;
+    private long gamesOver = 0;
+    private long latencySamples = 0;
+    private long latencyNanosTotal = 0;
+    private long latencyNanosMax = 0;
+    private long stalls = 0;
+    private long checksumMismatches = 0;
+    private long disconnects = 0;
+
+    private static class Bot {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(INPUT_SIZE);
+        final ByteBuffer output = ByteBuffer.allocate(OUTPUT_SIZE);
+        final Playfield board = new Playfield(Game.BOARD_WIDTH, Game.BOARD_HEIGHT);
+        SelectionKey key;
+
+        int plannedForPieces = -1;
+        long dropSentNanos = 0;
+        long awaitingSinceNanos = 0;
+        boolean hasState = false;
+        boolean restartSent = false;
+        int lines = 0;
+
+        Bot(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public BotClient(InetSocketAddress address, int botCount, int tickMillis, int stallTicks) throws IOException {
+        this.tickMillis = tickMillis;
+        this.stallTicks = stallTicks;
+        selector = Selector.open();
+        bots = new Bot[botCount];
+        for (int i = 0; i < botCount; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            Bot bot = new Bot(channel);
+            bot.key = channel.register(selector, SelectionKey.OP_READ, bot);
+            bots[i] = bot;
+        }
+    }
+
+    public void run(long durationMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + durationMillis;
+        long nextStallCheck = System.currentTimeMillis() + tickMillis;
+        while (true) {
+            long now = System.currentTimeMillis();
+            long remaining = deadline - now;
+            if (remaining <= 0) break;
+            if (now >= nextStallCheck) {
+                checkStalls();
+                nextStallCheck = now + tickMillis;
+            }
+            selector.select(Math.min(remaining, nextStallCheck - now));
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) continue;
+                Bot bot = (Bot) key.attachment();
+                if (key.isReadable()) {
+                    read(bot);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(bot);
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        for (Bot bot : bots) {
+            bot.channel.close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Counts, once each, the bots whose last drop or restart has gone
+     * unanswered for longer than the stall limit.
+     */
+    private void checkStalls() {
+        long limit = System.nanoTime() - stallTicks * tickMillis * 1_000_000L;
+        for (Bot bot : bots) {
+            if (bot.awaitingSinceNanos != 0 && bot.awaitingSinceNanos < limit) {
+                stalls++;
+                bot.awaitingSinceNanos = 0;
+            }
+        }
+    }
+
+    private void read(Bot bot) throws IOException {
+        int n;
+        try {
+            n = bot.channel.read(bot.input);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            disconnects++;
+            bot.key.cancel();
+            bot.channel.close();
+            return;
+        }
+        bytesReceived += n;
+
+        ByteBuffer in = bot.input;
+        in.flip();
+        while (true) {
+            int length = Protocol.stateLength(in, in.position(), in.remaining());
+            if (length < 0 || in.remaining() < length) break;
+            handleState(bot, in, in.position());
+            in.position(in.position() + length);
+        }
+        in.compact();
+        flush(bot);
+    }
+
+    private void handleState(Bot bot, ByteBuffer in, int offset) {
+        statesReceived++;
+        bot.hasState = true;
+        int count = in.get(offset + Protocol.OFFSET_COUNT) & 0xFF;
+        for (int i = 0; i < count; i++) {
+            int index = in.get(offset + Protocol.STATE_HEADER_SIZE + 2 * i) & 0xFF;
+            int value = in.get(offset + Protocol.STATE_HEADER_SIZE + 2 * i + 1);
+            bot.board.set(index % Game.BOARD_WIDTH, index / Game.BOARD_WIDTH, value);
+        }
+        bot.lines = in.getInt(offset + Protocol.OFFSET_LINES);
+        if (in.getInt(offset + Protocol.OFFSET_CHECKSUM) != Protocol.boardChecksum(bot.board)) {
+            checksumMismatches++;
+        }
+
+        long now = System.nanoTime();
+        if ((in.get(offset + Protocol.OFFSET_FLAGS) & Protocol.FLAG_GAME_OVER) != 0) {
+            if (!bot.restartSent) {
+                gamesOver++;
+                bot.restartSent = true;
+                bot.plannedForPieces = -1;
+                bot.dropSentNanos = 0;
+                bot.awaitingSinceNanos = now;
+                bot.output.put(Protocol.CMD_RESTART);
+            }
+            return;
+        }
+        bot.restartSent = false;
+
+        int pieces = in.getInt(offset + Protocol.OFFSET_PIECES);
+        int piece = in.get(offset + Protocol.OFFSET_PIECE);
+        if (piece == 0 || pieces == bot.plannedForPieces) return;
+
+        if (bot.dropSentNanos != 0) {
+            long latency = now - bot.dropSentNanos;
+            latencySamples++;
+            latencyNanosTotal += latency;
+            latencyNanosMax = Math.max(latencyNanosMax, latency);
+        }
+        bot.plannedForPieces = pieces;
+
+        AutoplayAI.Move move = ai.findBestMove(Tetromino.fromCellValue(piece), bot.board);
+        if (move == null) {
+            bot.output.put(Protocol.CMD_DROP);
+        } else {
+            int rotation = in.get(offset + Protocol.OFFSET_ROTATION);
+            int x = in.get(offset + Protocol.OFFSET_X);
+            for (int r = rotation; r != move.rotation; r = (r + 1) % 4) {
+                bot.output.put(Protocol.CMD_ROTATE);
+            }
+            for (int dx = move.x - x; dx != 0; dx -= Integer.signum(dx)) {
+                bot.output.put(dx < 0 ? Protocol.CMD_LEFT : Protocol.CMD_RIGHT);
+            }
+            bot.output.put(Protocol.CMD_DROP);
+        }
+        bot.dropSentNanos = now;
+        bot.awaitingSinceNanos = now;
+        drops++;
+    }
+
+    private void flush(Bot bot) throws IOException {
+        ByteBuffer out = bot.output;
+        out.flip();
+        bot.channel.write(out);
+        boolean hasRemaining = out.hasRemaining();
+        out.compact();
+        bot.key.interestOps(hasRemaining ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void printReport(long durationMillis) {
+        double seconds = durationMillis / 1000.0;
+        System.out.printf("bots %d, %.1f s%n", bots.length, seconds);
+        System.out.printf("states received %d (%.0f/s), %.1f bytes/state%n",
+                statesReceived, statesReceived / seconds,
+                statesReceived == 0 ? 0.0 : (double) bytesReceived / statesReceived);
+        System.out.printf("drops %d (%.0f/s), game overs %d%n", drops, drops / seconds, gamesOver);
+        System.out.printf("drop to next piece latency, including bot AI: mean %.2f ms, max %.2f ms%n",
+                latencySamples == 0 ? 0.0 : latencyNanosTotal / 1e6 / latencySamples,
+                latencyNanosMax / 1e6);
+        System.out.printf("stalls %d, checksum mismatches %d, disconnects %d%n",
+                stalls, checksumMismatches, disconnects);
+    }
+
+    private static void printServerReport(GameServer server) {
+        System.out.printf("server tick to write latency: mean %.2f ms, p99 %.0f ms, max %.2f ms over %d ticks%n",
+                server.getTickLatencyMeanMillis(), server.getTickLatencyPercentileMillis(0.99),
+                server.getTickLatencyMaxMillis(), server.getTickLatencySamples());
+    }
+
+    /**
+     * @param acceptedSessions sessions the embedded server held at the end of
+     *                         the run, or -1 when the server is remote
+     */
+    private List<String> findFailures(int acceptedSessions) {
+        List<String> failures = new ArrayList<>();
+        if (statesReceived == 0) {
+            failures.add("no state messages received");
+        }
+        int silent = 0;
+        for (Bot bot : bots) {
+            if (!bot.hasState) silent++;
+        }
+        if (silent > 0 && statesReceived > 0) {
+            failures.add(silent + " bots received no state");
+        }
+        if (stalls > 0) {
+            failures.add(String.format("%d drops or restarts got no new piece within %d ticks", stalls, stallTicks));
+        }
+        if (checksumMismatches > 0) {
+            failures.add(String.format("%d states disagreed with the mirrored board", checksumMismatches));
+        }
+        if (disconnects > 0) {
+            failures.add(String.format("%d bots were disconnected by the server", disconnects));
+        }
+        if (acceptedSessions >= 0 && acceptedSessions != bots.length - disconnects) {
+            failures.add(String.format("server held %d sessions for %d connected bots",
+                    acceptedSessions, bots.length - disconnects));
+        }
+        return failures;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = GameServer.DEFAULT_PORT;
+        int botCount = 100;
+        int seconds = 10;
+        int tickMillis = GameServer.DEFAULT_TICK_MILLIS;
+        int stallTicks = DEFAULT_STALL_TICKS;
+        boolean embedded = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--host":
+                        host = args[++i];
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--bots":
+                        botCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seconds":
+                        seconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--tick-ms":
+                        tickMillis = Integer.parseInt(args[++i]);
+                        break;
+                    case "--stall-ticks":
+                        stallTicks = Integer.parseInt(args[++i]);
+                        break;
+                    case "--embedded":
+                        embedded = true;
+                        break;
+                    default:
+                        usage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            usage();
+            return;
+        }
+        if (tickMillis <= 0 || stallTicks <= 0) {
+            usage();
+            return;
+        }
+
+        GameServer server = null;
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (embedded) {
+            server = new GameServer(new InetSocketAddress("127.0.0.1", 0),
+                    Runtime.getRuntime().availableProcessors(), tickMillis);
+            server.start();
+            address = server.getAddress();
+        }
+
+        BotClient client = new BotClient(address, botCount, tickMillis, stallTicks);
+        long durationMillis = seconds * 1000L;
+        client.run(durationMillis);
+        int acceptedSessions = server == null ? -1 : server.getSessionCount();
+        client.close();
+        client.printReport(durationMillis);
+
+        if (server != null) {
+            server.stop();
+            printServerReport(server);
+        }
+
+        List<String> failures = client.findFailures(acceptedSessions);
+        if (failures.isEmpty()) {
+            System.out.println("OK: every state was consistent and answered in time");
+        } else {
+            for (String failure : failures) {
+                System.err.println("FAILURE: " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: BotClient [--host H] [--port P] [--bots N] [--seconds S]"
+                + " [--tick-ms MS] [--stall-ticks N] [--embedded]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.Random;
+
+/**
+ * Game rules and state without any UI. The Swing {@link Board} and the
+ * headless runner both drive an instance of this class, so nothing here may
+ * reference AWT or Swing.
+ */
+public class Game {
+
+    public static final int BOARD_WIDTH = 10;
+    public static final int BOARD_HEIGHT = 20;
+
+    /**
+     * Cell value of a garbage block; piece cells use {@link Tetromino#cellValue()}.
+     */
+    public static final int GARBAGE_CELL = Tetromino.values().length + 1;
+
+    private final Playfield playfield;
+    private final Random random;
+
+    private int garbageRows = 0;
+    private int garbageEveryPieces = 0;
+
+    private Tetromino currentPiece;
+    private int currentX = 0;
+    private int currentY = 0;
+    private int currentRotation = 0;
+
+    private Tetromino nextPiece;
+
+    private int score = 0;
+    private int linesCleared = 0;
+    private int piecesPlaced = 0;
+    private boolean isOver = false;
+
+    public Game() {
+        this(new Random());
+    }
+
+    public Game(long seed) {
+        this(new Random(seed));
+    }
+
+    private Game(Random random) {
+        this.random = random;
+        this.playfield = new Playfield(BOARD_WIDTH, BOARD_HEIGHT);
+    }
+
+    /**
+     * Enables survival mode: after every {@code everyPieces} placed pieces,
+     * {@code rows} garbage rows with one random gap are pushed up from the
+     * bottom. Passing 0 for either argument turns it off.
+     */
+    public void setGarbage(int rows, int everyPieces) {
+        this.garbageRows = Math.max(rows, 0);
+        this.garbageEveryPieces = Math.max(everyPieces, 0);
+    }
+
+    public boolean isGarbageEnabled() {
+        return garbageRows > 0 && garbageEveryPieces > 0;
+    }
+
+    public void start() {
+        score = 0;
+        linesCleared = 0;
+        piecesPlaced = 0;
+        isOver = false;
+        playfield.clear();
+        newPiece();
+    }
+
+    private void newPiece() {
+        currentPiece = nextPiece == null ? Tetromino.getRandomPiece(random) : nextPiece;
+        nextPiece = Tetromino.getRandomPiece(random);
+
+        currentRotation = 0;
+        currentX = BOARD_WIDTH / 2 - currentPiece.getShapeForRotation(0)[0].length / 2;
+        currentY = 0;
+
+        if (!canMove(currentPiece, currentX, currentY, currentRotation)) {
+            end();
+        }
+    }
+
+    /**
+     * Ends the game immediately, e.g. when the AI finds no legal placement.
+     */
+    public void end() {
+        currentPiece = null;
+        isOver = true;
+    }
+
+    public boolean canMove(Tetromino piece, int newX, int newY, int targetRotation) {
+        int[][] shape = piece.getShapeForRotation(targetRotation);
+
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                if (shape[i][j] != 0) {
+                    int x = newX + j;
+                    int y = newY + i;
+
+                    if (x < 0 || x >= BOARD_WIDTH || y < 0 || y >= BOARD_HEIGHT) {
+                        return false;
+                    }
+                    if (playfield.get(x, y) != 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean tryMove(int newX, int newY, int newRotation) {
+        if (currentPiece == null || !canMove(currentPiece, newX, newY, newRotation)) {
+            return false;
+        }
+        currentX = newX;
+        currentY = newY;
+        currentRotation = newRotation;
+        return true;
+    }
+
+    /**
+     * Moves the current piece one row down, locking it in place when it
+     * cannot fall any further.
+     */
+    public void oneLineDown() {
+        if (currentPiece == null) return;
+        if (!tryMove(currentX, currentY + 1, currentRotation)) {
+            pieceDropped();
+        }
+    }
+
+    public void hardDrop() {
+        if (currentPiece == null) return;
+        while (canMove(currentPiece, currentX, currentY + 1, currentRotation)) {
+            currentY++;
+        }
+        pieceDropped();
+    }
+
+    /**
+     * Lets the AI place the current piece. Returns the move it made, or null
+     * if no decision was taken: the game is over, or there was no piece yet
+     * and one was spawned instead.
+     */
+    public AutoplayAI.Move autoplayStep(AutoplayAI ai) {
+        if (isOver) return null;
+        if (currentPiece == null) {
+            newPiece();
+            return null;
+        }
+        AutoplayAI.Move move = ai.findBestMove(currentPiece, playfield);
+        placeMove(move);
+        return move;
+    }
+
+    /**
+     * Drops the current piece at a position chosen by the AI, ending the game
+     * when there is none.
+     */
+    private void placeMove(AutoplayAI.Move move) {
+        if (move == null) {
+            end();
+            return;
+        }
+        currentRotation = move.rotation;
+        currentX = move.x;
+        currentY = move.y;
+        pieceDropped();
+    }
+
+    private void pieceDropped() {
+        placePieceOnBoard();
+        piecesPlaced++;
+        removeFullLines();
+        if (isGarbageEnabled() && piecesPlaced % garbageEveryPieces == 0) {
+            for (int i = 0; i < garbageRows; i++) {
+                if (!playfield.insertBottomRow(random.nextInt(BOARD_WIDTH), GARBAGE_CELL)) {
+                    end();
+                    return;
+                }
+            }
+        }
+        newPiece();
+    }
+
+    private void placePieceOnBoard() {
+        int[][] shape = currentPiece.getShapeForRotation(currentRotation);
+        int value = currentPiece.cellValue();
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                if (shape[i][j] != 0) {
+                    playfield.set(currentX + j, currentY + i, value);
+                }
+            }
+        }
+    }
+
+    private void removeFullLines() {
+        int[][] shape = currentPiece.getShapeForRotation(currentRotation);
+        int numFullLines = playfield.clearFullRows(currentY, currentY + shape.length - 1);
+
+        if (numFullLines > 0) {
+            linesCleared += numFullLines;
+            if (numFullLines == 1) score += 100;
+            else if (numFullLines == 2) score += 300;
+            else if (numFullLines == 3) score += 500;
+            else if (numFullLines == 4) score += 800;
+        }
+    }
+
+    /**
+     * Cell values are 0 for empty, {@link #GARBAGE_CELL} for garbage, otherwise
+     * {@link Tetromino#cellValue()}. The returned grid is live; callers must not
+     * modify it.
+     */
+    public Playfield getPlayfield() {
+        return playfield;
+    }
+
+    public Tetromino getCurrentPiece() {
+        return currentPiece;
+    }
+
+    public int[][] getCurrentShape() {
+        return currentPiece.getShapeForRotation(currentRotation);
+    }
+
+    public int getCurrentX() {
+        return currentX;
+    }
+
+    public int getCurrentY() {
+        return currentY;
+    }
+
+    public int getCurrentRotation() {
+        return currentRotation;
+    }
+
+    public Tetromino getNextPiece() {
+        return nextPiece;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLinesCleared() {
+        return linesCleared;
+    }
+
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    public boolean isOver() {
+        return isOver;
+    }
+}
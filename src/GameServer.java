@@ -0,0 +1,521 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many concurrent game sessions, one per TCP connection, speaking
+ * {@link Protocol}.
+ * <p>
+ * A single selector thread accepts connections, reads commands and writes
+ * state messages. Game logic runs on a worker pool: each session queues its
+ * commands and gravity ticks and has at most one task in the pool at a time,
+ * so a session's game is never touched by two threads at once. Workers encode
+ * the state delta into the session's output buffer and hand the session back
+ * to the selector thread for writing.
+ * <p>
+ * Input is never dropped: when a session's command inbox is full the selector
+ * stops reading that socket, leaving further commands in the kernel buffer
+ * until a worker has drained the inbox, so TCP flow control pushes back on a
+ * client that sends faster than it is served.
+ * <p>
+ * Gravity ticks are spread over the tick interval: each session is assigned
+ * one of a fixed number of slots at accept, and the ticker wakes once
+ * per slot, so the pool sees a steady trickle of ticks instead of every game
+ * at once.
+ * <p>
+ * The selector thread records how long each tick takes from being offered to
+ * a session until the state it produced has been written to the socket, which
+ * is the server's own share of what a player sees as input or gravity lag.
+ * <p>
+ * Usage: {@code java -cp out GameServer [--host H] [--port P] [--workers N] [--tick-ms MS]}
+ */
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 7777;
+    public static final int DEFAULT_TICK_MILLIS = 500;
+
+    private static final int INBOX_SIZE = 32;
+    private static final int OUTBOX_SIZE = 2 * Protocol.MAX_STATE_SIZE;
+    private static final int TICK_SLOTS = 10;
+    private static final int LATENCY_BUCKETS = 1000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService ticker;
+    private final int tickMillis;
+    private final Random seeds = new Random();
+
+    private final List<Set<Session>> tickSlots = new ArrayList<>();
+    private int nextSlot = 0;
+    private int tickSlot = 0;
+    private final ConcurrentLinkedQueue<Session> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096);
+
+    // Tick to write latency in 1 ms buckets, the last one open-ended; selector thread only.
+    private final long[] tickLatencyBuckets = new long[LATENCY_BUCKETS];
+    private long tickLatencySamples = 0;
+    private long tickLatencyNanosTotal = 0;
+    private long tickLatencyNanosMax = 0;
+
+    private Thread selectorThread;
+    private volatile boolean isRunning = false;
+
+    public GameServer(InetSocketAddress address, int workerThreads, int tickMillis) throws IOException {
+        this.tickMillis = tickMillis;
+        int slotCount = Math.max(1, Math.min(TICK_SLOTS, tickMillis));
+        for (int i = 0; i < slotCount; i++) {
+            tickSlots.add(ConcurrentHashMap.newKeySet());
+        }
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address, 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers = Executors.newFixedThreadPool(workerThreads, daemonThreads("game-worker"));
+        this.ticker = Executors.newSingleThreadScheduledExecutor(daemonThreads("game-ticker"));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    public int getSessionCount() {
+        int count = 0;
+        for (Set<Session> slot : tickSlots) {
+            count += slot.size();
+        }
+        return count;
+    }
+
+    /**
+     * Number of ticks whose state has been written. This and the other tick
+     * latency figures are kept by the selector thread and are only complete
+     * once {@link #stop()} has returned.
+     */
+    public long getTickLatencySamples() {
+        return tickLatencySamples;
+    }
+
+    public double getTickLatencyMeanMillis() {
+        return tickLatencySamples == 0 ? 0.0 : tickLatencyNanosTotal / 1e6 / tickLatencySamples;
+    }
+
+    public double getTickLatencyMaxMillis() {
+        return tickLatencyNanosMax / 1e6;
+    }
+
+    /**
+     * Tick latency that {@code fraction} of the samples stay under, rounded up
+     * to the next millisecond.
+     */
+    public double getTickLatencyPercentileMillis(double fraction) {
+        long rank = (long) Math.ceil(tickLatencySamples * fraction);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += tickLatencyBuckets[i];
+            if (seen >= rank && seen > 0) return i + 1;
+        }
+        return 0.0;
+    }
+
+    private void recordTickLatency(long nanos) {
+        tickLatencySamples++;
+        tickLatencyNanosTotal += nanos;
+        tickLatencyNanosMax = Math.max(tickLatencyNanosMax, nanos);
+        tickLatencyBuckets[(int) Math.min(nanos / 1_000_000, LATENCY_BUCKETS - 1)]++;
+    }
+
+    public void start() {
+        isRunning = true;
+        selectorThread = new Thread(this::runSelector, "game-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        if (tickMillis > 0) {
+            long periodMicros = tickMillis * 1000L / tickSlots.size();
+            ticker.scheduleAtFixedRate(this::tick, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    public void stop() {
+        isRunning = false;
+        ticker.shutdownNow();
+        workers.shutdownNow();
+        selector.wakeup();
+        try {
+            if (selectorThread != null) selectorThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Set<Session> slot : tickSlots) {
+            for (Session session : slot) {
+                session.close();
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Error closing server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ticks the sessions of one slot; runs on the ticker thread once per
+     * slot, so each session still gets one tick per tick interval.
+     */
+    private void tick() {
+        for (Session session : tickSlots.get(tickSlot)) {
+            session.offerTick();
+        }
+        tickSlot = (tickSlot + 1) % tickSlots.size();
+    }
+
+    private void runSelector() {
+        while (isRunning) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.err.println("Selector failed: " + e.getMessage());
+                return;
+            }
+            if (!isRunning) return;
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Session session = (Session) key.attachment();
+                if (key.isReadable()) {
+                    read(session);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(session);
+                }
+            }
+
+            wakeupPending.set(false);
+            Session session;
+            while ((session = pendingUpdates.poll()) != null) {
+                flush(session);
+            }
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Session session = new Session(channel, seeds.nextLong(), tickSlots.get(nextSlot));
+                nextSlot = (nextSlot + 1) % tickSlots.size();
+                session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                session.slot.add(session);
+                session.schedule();
+            }
+        } catch (IOException e) {
+            System.err.println("Accept failed: " + e.getMessage());
+        }
+    }
+
+    private void read(Session session) {
+        int space = session.inboxSpace();
+        if (space == 0) {
+            flush(session);
+            return;
+        }
+        readBuffer.clear();
+        readBuffer.limit(Math.min(space, readBuffer.capacity()));
+        int n;
+        try {
+            n = session.channel.read(readBuffer);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            session.close();
+            return;
+        }
+        readBuffer.flip();
+        if (session.offerCommands(readBuffer)) {
+            flush(session);
+        }
+    }
+
+    /**
+     * Writes what the session has buffered and sets its interest ops: reading
+     * while its inbox has room, writing while output is left over.
+     */
+    private void flush(Session session) {
+        boolean hasRemaining;
+        boolean isStale;
+        boolean isReadPaused;
+        long tickNanos = 0;
+        synchronized (session) {
+            if (session.isClosed) return;
+            session.isUpdateQueued = false;
+            ByteBuffer out = session.outbox;
+            out.flip();
+            try {
+                session.channel.write(out);
+            } catch (IOException e) {
+                out.clear();
+                session.close();
+                return;
+            }
+            hasRemaining = out.hasRemaining();
+            out.compact();
+            isStale = session.isStale;
+            isReadPaused = session.isReadPaused;
+            if (!hasRemaining) {
+                tickNanos = session.tickEncodedNanos;
+                session.tickEncodedNanos = 0;
+            }
+        }
+        if (tickNanos != 0) {
+            recordTickLatency(System.nanoTime() - tickNanos);
+        }
+        session.key.interestOps((isReadPaused ? 0 : SelectionKey.OP_READ) | (hasRemaining ? SelectionKey.OP_WRITE : 0));
+        if (isStale && !hasRemaining) {
+            session.schedule();
+        }
+    }
+
+    private void queueUpdate(Session session) {
+        pendingUpdates.add(session);
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * One client connection and its game. Guarded by its own monitor; the
+     * selector thread only holds it to queue input, drain output and read the
+     * flags that decide its interest ops.
+     */
+    private class Session implements Runnable {
+        final SocketChannel channel;
+        final Set<Session> slot;
+        SelectionKey key;
+
+        final Game game;
+        final byte[] inbox = new byte[INBOX_SIZE];
+        int inboxCount = 0;
+        boolean hasTick = false;
+
+        // When the oldest tick not yet written was offered: applied but not yet
+        // encoded, then encoded into the outbox but not yet written.
+        long tickOfferedNanos = 0;
+        long tickAppliedNanos = 0;
+        long tickEncodedNanos = 0;
+
+        final ByteBuffer outbox = ByteBuffer.allocate(OUTBOX_SIZE);
+        final byte[] sentCells = new byte[Protocol.CELLS];
+        final int[] sentHeader = new int[Protocol.HEADER_FIELDS];
+
+        boolean isScheduled = false;
+        boolean isUpdateQueued = false;
+        boolean isReadPaused = false;
+        boolean isStale = true;
+        boolean isClosed = false;
+
+        Session(SocketChannel channel, long seed, Set<Session> slot) {
+            this.channel = channel;
+            this.slot = slot;
+            this.game = new Game(seed);
+            Arrays.fill(sentHeader, -1);
+            game.start();
+        }
+
+        synchronized int inboxSpace() {
+            if (inboxCount == INBOX_SIZE) isReadPaused = true;
+            return INBOX_SIZE - inboxCount;
+        }
+
+        /**
+         * Queues commands read into at most the free inbox space. Returns true
+         * when the inbox is now full and reading must pause until it drains.
+         */
+        synchronized boolean offerCommands(ByteBuffer commands) {
+            while (commands.hasRemaining()) {
+                inbox[inboxCount++] = commands.get();
+            }
+            if (inboxCount == INBOX_SIZE) isReadPaused = true;
+            scheduleLocked();
+            return isReadPaused;
+        }
+
+        synchronized void offerTick() {
+            if (!hasTick) tickOfferedNanos = System.nanoTime();
+            hasTick = true;
+            scheduleLocked();
+        }
+
+        synchronized void schedule() {
+            isStale = true;
+            scheduleLocked();
+        }
+
+        private void scheduleLocked() {
+            if (isScheduled || isClosed || !isRunning) return;
+            isScheduled = true;
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                isScheduled = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean wrote;
+            synchronized (this) {
+                isScheduled = false;
+                if (isClosed) return;
+                if (hasTick) {
+                    hasTick = false;
+                    if (!game.isOver()) game.oneLineDown();
+                    if (tickAppliedNanos == 0) tickAppliedNanos = tickOfferedNanos;
+                }
+                for (int i = 0; i < inboxCount; i++) {
+                    apply(inbox[i]);
+                }
+                inboxCount = 0;
+                boolean resumeReading = isReadPaused;
+                isReadPaused = false;
+
+                wrote = Protocol.writeState(outbox, game, sentCells, sentHeader);
+                isStale = !wrote && outbox.remaining() < Protocol.MAX_STATE_SIZE;
+                if (wrote && tickEncodedNanos == 0) tickEncodedNanos = tickAppliedNanos;
+                // A stale session encodes the tick later; an unchanged state has nothing to time.
+                if (wrote || !isStale) tickAppliedNanos = 0;
+                if (!(wrote || resumeReading) || isUpdateQueued) return;
+                isUpdateQueued = true;
+            }
+            queueUpdate(this);
+        }
+
+        private void apply(byte command) {
+            int x = game.getCurrentX();
+            int y = game.getCurrentY();
+            int rotation = game.getCurrentRotation();
+            switch (command) {
+                case Protocol.CMD_LEFT:
+                    game.tryMove(x - 1, y, rotation);
+                    break;
+                case Protocol.CMD_RIGHT:
+                    game.tryMove(x + 1, y, rotation);
+                    break;
+                case Protocol.CMD_ROTATE:
+                    game.tryMove(x, y, (rotation + 1) % 4);
+                    break;
+                case Protocol.CMD_DOWN:
+                    game.oneLineDown();
+                    break;
+                case Protocol.CMD_DROP:
+                    game.hardDrop();
+                    break;
+                case Protocol.CMD_RESTART:
+                    game.start();
+                    break;
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (isClosed) return;
+                isClosed = true;
+            }
+            slot.remove(this);
+            if (key != null) key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone; nothing else to release.
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int workerThreads = Runtime.getRuntime().availableProcessors();
+        int tickMillis = DEFAULT_TICK_MILLIS;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--host":
+                        host = args[++i];
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--workers":
+                        workerThreads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--tick-ms":
+                        tickMillis = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        usage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            usage();
+            return;
+        }
+
+        GameServer server = new GameServer(new InetSocketAddress(host, port), workerThreads, tickMillis);
+        server.start();
+        System.out.println("Game server listening on " + server.getAddress());
+        try {
+            server.selectorThread.join();
+        } catch (InterruptedException e) {
+            server.stop();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: GameServer [--host H] [--port P] [--workers N] [--tick-ms MS]");
+        System.exit(2);
+    }
+}
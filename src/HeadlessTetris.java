@@ -0,0 +1,122 @@
+/**
+ * Command line entry point that plays AI games without a window.
+ * <p>
+ * Only {@link Game}, {@link AutoplayAI} and {@link Tetromino} are used here, so
+ * no AWT or Swing class is ever loaded. The startup path also avoids lambdas and
+ * {@code +} string concatenation, which are bootstrapped through invokedynamic
+ * on first use; this keeps short runs fast and makes the set of loaded classes
+ * small and stable for a class data sharing archive (see README).
+ * <p>
+ * Usage: {@code java -cp out HeadlessTetris [--games N] [--seed S] [--max-pieces N]
+ * [--garbage-every N] [--garbage-rows N] [--trace]}
+ */
+public class HeadlessTetris {
+
+    private static final int DEFAULT_MAX_PIECES = 10000;
+
+    public static void main(String[] args) {
+        int games = 1;
+        long seed = System.nanoTime();
+        int maxPieces = DEFAULT_MAX_PIECES;
+        int garbageEvery = 0;
+        int garbageRows = 1;
+        boolean trace = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--games":
+                        games = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--max-pieces":
+                        maxPieces = Integer.parseInt(args[++i]);
+                        break;
+                    case "--garbage-every":
+                        garbageEvery = Integer.parseInt(args[++i]);
+                        break;
+                    case "--garbage-rows":
+                        garbageRows = Integer.parseInt(args[++i]);
+                        break;
+                    case "--trace":
+                        trace = true;
+                        break;
+                    default:
+                        usage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            usage();
+            return;
+        }
+
+        AutoplayAI ai = new AutoplayAI();
+        long totalPieces = 0;
+        long totalLines = 0;
+        long startNanos = System.nanoTime();
+
+        for (int g = 0; g < games; g++) {
+            long gameSeed = seed + g;
+            Game game = new Game(gameSeed);
+            game.setGarbage(garbageRows, garbageEvery);
+            game.start();
+            while (!game.isOver() && game.getPiecesPlaced() < maxPieces) {
+                Tetromino piece = game.getCurrentPiece();
+                game.autoplayStep(ai);
+                if (trace) {
+                    printPlacement(game, piece);
+                }
+            }
+            totalPieces += game.getPiecesPlaced();
+            totalLines += game.getLinesCleared();
+
+            StringBuilder sb = new StringBuilder(96);
+            sb.append("game ").append(g)
+                    .append(" seed ").append(gameSeed)
+                    .append(" pieces ").append(game.getPiecesPlaced())
+                    .append(" lines ").append(game.getLinesCleared())
+                    .append(" score ").append(game.getScore())
+                    .append(game.isOver() ? " (game over)" : " (piece limit)");
+            System.out.println(sb);
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("total pieces ").append(totalPieces)
+                .append(" lines ").append(totalLines)
+                .append(" time ").append(elapsedNanos / 1_000_000).append(" ms");
+        if (elapsedNanos > 0) {
+            sb.append(" (").append(totalPieces * 1_000_000_000L / elapsedNanos).append(" pieces/s)");
+        }
+        System.out.println(sb);
+    }
+
+    private static void printPlacement(Game game, Tetromino piece) {
+        StringBuilder sb = new StringBuilder((Game.BOARD_WIDTH + 1) * (Game.BOARD_HEIGHT + 1));
+        sb.append("piece ").append(game.getPiecesPlaced())
+                .append(' ').append(piece)
+                .append(" lines ").append(game.getLinesCleared())
+                .append('\n');
+        appendCells(sb, game.getPlayfield());
+        System.out.println(sb);
+    }
+
+    static void appendCells(StringBuilder sb, Playfield playfield) {
+        for (int y = 0; y < playfield.getHeight(); y++) {
+            int[] row = playfield.row(y);
+            for (int cell : row) {
+                sb.append(cell == 0 ? '.' : cell == Game.GARBAGE_CELL ? 'x' : '#');
+            }
+            sb.append('\n');
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: HeadlessTetris [--games N] [--seed S] [--max-pieces N]"
+                + " [--garbage-every N] [--garbage-rows N] [--trace]");
+        System.exit(2);
+    }
+}
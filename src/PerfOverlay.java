@@ -0,0 +1,133 @@
+import javax.swing.*;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Toggleable statistics drawn on top of a {@link Board}: frames per second,
+ * paint time, AI decisions per second, candidates per decision, the last
+ * decision's latency and the allocation rate of the event dispatch thread,
+ * where both the game and the AI run.
+ * <p>
+ * Painting and the AI only bump counters. Once a second a Swing timer turns
+ * the counters into the text lines, so drawing the overlay allocates nothing.
+ */
+public class PerfOverlay {
+
+    private static final int SAMPLE_INTERVAL = 1000;
+    private static final int LINE_HEIGHT = 14;
+    private static final int PADDING = 6;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+
+    private final JComponent target;
+    private final Timer sampler;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private boolean isVisible = false;
+
+    private int frames = 0;
+    private long paintNanos = 0;
+    private int decisions = 0;
+    private long candidates = 0;
+    private long lastDecisionNanos = 0;
+    private long windowStartNanos;
+    private long windowStartAllocated;
+
+    private final String[] lines = {"FPS", "paint", "AI", "candidates", "last decision", "alloc"};
+    private int panelWidth = 0;
+
+    public PerfOverlay(JComponent target) {
+        this.target = target;
+        this.sampler = new Timer(SAMPLE_INTERVAL, e -> sample());
+        this.allocationBean = findAllocationBean();
+    }
+
+    private static com.sun.management.ThreadMXBean findAllocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    public void toggle() {
+        isVisible = !isVisible;
+        if (isVisible) {
+            resetWindow();
+            sampler.start();
+        } else {
+            sampler.stop();
+        }
+        target.repaint();
+    }
+
+    public boolean isVisible() {
+        return isVisible;
+    }
+
+    public void recordDecision(long nanos, int candidateCount) {
+        if (!isVisible) return;
+        decisions++;
+        candidates += candidateCount;
+        lastDecisionNanos = nanos;
+    }
+
+    /**
+     * Draws the overlay and counts the frame. {@code paintStartNanos} is when
+     * the owner's paint began, so the paint time covers the whole frame.
+     */
+    public void paint(Graphics g, long paintStartNanos) {
+        if (!isVisible) return;
+
+        g.setFont(FONT);
+        if (panelWidth == 0) {
+            panelWidth = measureWidth(g.getFontMetrics());
+        }
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, panelWidth, lines.length * LINE_HEIGHT + PADDING * 2);
+        g.setColor(Color.GREEN);
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], PADDING, PADDING + (i + 1) * LINE_HEIGHT - 3);
+        }
+
+        frames++;
+        paintNanos += System.nanoTime() - paintStartNanos;
+    }
+
+    private int measureWidth(FontMetrics fm) {
+        return fm.stringWidth("last decision 99999.9 us") + PADDING * 2;
+    }
+
+    private void resetWindow() {
+        frames = 0;
+        paintNanos = 0;
+        decisions = 0;
+        candidates = 0;
+        windowStartNanos = System.nanoTime();
+        windowStartAllocated = allocatedBytes();
+    }
+
+    private long allocatedBytes() {
+        return allocationBean == null ? -1 : allocationBean.getCurrentThreadAllocatedBytes();
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        double seconds = (now - windowStartNanos) / 1e9;
+        long allocated = allocatedBytes();
+
+        lines[0] = String.format("FPS %13.1f", frames / seconds);
+        lines[1] = String.format("paint %10.2f ms", frames == 0 ? 0.0 : paintNanos / 1e6 / frames);
+        lines[2] = String.format("AI %11.1f /s", decisions / seconds);
+        lines[3] = String.format("candidates %5.1f", decisions == 0 ? 0.0 : (double) candidates / decisions);
+        lines[4] = String.format("last decision %7.1f us", lastDecisionNanos / 1e3);
+        lines[5] = allocated < 0
+                ? "alloc       n/a"
+                : String.format("alloc %8.1f MB/s", (allocated - windowStartAllocated) / 1e6 / seconds);
+
+        resetWindow();
+        target.repaint();
+    }
+}
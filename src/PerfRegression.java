@@ -0,0 +1,377 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Plays a fixed set of seeded AI games headlessly and compares throughput,
+ * decision latency, allocation and gameplay against a recorded baseline.
+ * <p>
+ * Usage: {@code java -cp out PerfRegression [--baseline FILE] [--record] [--forks N]}
+ * <p>
+ * Throughput varies more between JVM runs than between rounds inside one
+ * run, because each JVM compiles the hot code differently. The suite is
+ * therefore measured in {@code --forks} separate JVMs, each reporting its
+ * best round, and the median of those is what gets recorded and compared.
+ * {@code --forks 0} measures in the current JVM only.
+ * <p>
+ * Exits with status 1 when a metric regresses past its tolerance, so it can
+ * gate a build. Run with {@code --record} after an intended change to update
+ * the baseline. Gameplay is deterministic for a given seed and must match
+ * exactly unless {@code --gameplay-tolerance} is given.
+ */
+public class PerfRegression {
+
+    private static final String DEFAULT_BASELINE = "perf/baseline.properties";
+
+    /**
+     * Seed and garbage interval of each game in the suite; 0 means no garbage.
+     */
+    private static final long[][] GAMES = {
+            {1, 0}, {2, 0}, {3, 0}, {4, 0}, {5, 0},
+            {11, 6}, {12, 6}, {13, 4}, {14, 4},
+    };
+    private static final int MAX_PIECES = 1000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int DEFAULT_FORKS = 5;
+
+    public static void main(String[] args) throws IOException {
+        Path baselinePath = Paths.get(DEFAULT_BASELINE);
+        boolean record = false;
+        double throughputTolerance = 0.30;
+        double latencyTolerance = 0.30;
+        double allocationTolerance = 0.25;
+        double gameplayTolerance = 0.0;
+        int forks = DEFAULT_FORKS;
+        boolean child = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--baseline":
+                        baselinePath = Paths.get(args[++i]);
+                        break;
+                    case "--record":
+                        record = true;
+                        break;
+                    case "--throughput-tolerance":
+                        throughputTolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--latency-tolerance":
+                        latencyTolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--allocation-tolerance":
+                        allocationTolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--gameplay-tolerance":
+                        gameplayTolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--forks":
+                        forks = Integer.parseInt(args[++i]);
+                        break;
+                    case "--child":
+                        // Internal: measure in this JVM and report to the parent on stdout.
+                        child = true;
+                        break;
+                    default:
+                        usage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            usage();
+            return;
+        }
+
+        if (child) {
+            Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            writeProperties(writer, measure());
+            writer.flush();
+            return;
+        }
+
+        Measurement best = forks > 0 ? measureInForks(forks) : measure();
+        printResult(best);
+
+        if (record) {
+            writeBaseline(baselinePath, best);
+            System.out.println("Baseline written to " + baselinePath);
+            return;
+        }
+
+        if (!Files.exists(baselinePath)) {
+            System.err.println("No baseline at " + baselinePath + "; run with --record first");
+            System.exit(2);
+        }
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselinePath, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+
+        List<String> failures = new ArrayList<>();
+        double baseThroughput = Double.parseDouble(baseline.getProperty("placementsPerSecond"));
+        if (best.placementsPerSecond < baseThroughput * (1 - throughputTolerance)) {
+            failures.add(String.format("placements/s %.0f is below baseline %.0f", best.placementsPerSecond, baseThroughput));
+        }
+        double baseLatency = Double.parseDouble(baseline.getProperty("decisionLatencyMicros"));
+        if (best.decisionLatencyMicros > baseLatency * (1 + latencyTolerance)) {
+            failures.add(String.format("decision latency %.1f us is above baseline %.1f us", best.decisionLatencyMicros, baseLatency));
+        }
+        // The baseline has no allocation figure when it was recorded on a JVM that cannot count it.
+        double baseAllocation = Double.parseDouble(baseline.getProperty("bytesPerPlacement", "-1"));
+        if (baseAllocation >= 0 && best.bytesPerPlacement >= 0
+                && best.bytesPerPlacement > baseAllocation * (1 + allocationTolerance)) {
+            failures.add(String.format("allocation %.0f B/placement is above baseline %.0f", best.bytesPerPlacement, baseAllocation));
+        }
+        for (int g = 0; g < GAMES.length; g++) {
+            checkGameplay(baseline, g, "pieces", best.pieces[g], gameplayTolerance, failures);
+            checkGameplay(baseline, g, "lines", best.lines[g], gameplayTolerance, failures);
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("OK: within tolerance of " + baselinePath);
+        } else {
+            for (String failure : failures) {
+                System.err.println("REGRESSION: " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void checkGameplay(Properties baseline, int game, String metric, int actual,
+                                      double tolerance, List<String> failures) {
+        String key = "game." + game + "." + metric;
+        String expected = baseline.getProperty(key);
+        if (expected == null) {
+            failures.add("baseline has no " + key);
+            return;
+        }
+        int base = Integer.parseInt(expected);
+        if (Math.abs(actual - base) > base * tolerance) {
+            failures.add(String.format("game %d (seed %d) had %d %s, baseline %d", game, GAMES[game][0], actual, metric, base));
+        }
+    }
+
+    /**
+     * Runs the suite in this JVM and returns its fastest measured round.
+     */
+    private static Measurement measure() {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runSuite();
+        }
+        Result best = null;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            Result result = runSuite();
+            if (best == null || result.placementsPerSecond() > best.placementsPerSecond()) {
+                best = result;
+            }
+        }
+        return new Measurement(best);
+    }
+
+    /**
+     * Measures the suite in {@code forks} fresh JVMs, one after another, and
+     * returns the median of their results.
+     */
+    private static Measurement measureInForks(int forks) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Measurement[] results = new Measurement[forks];
+        for (int i = 0; i < forks; i++) {
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    PerfRegression.class.getName(), "--child")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            Properties properties = new Properties();
+            try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            int status;
+            try {
+                status = process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for fork " + i);
+            }
+            if (status != 0) {
+                throw new IOException("Fork " + i + " exited with status " + status);
+            }
+            results[i] = new Measurement(properties);
+            System.out.printf("fork %d: placements/s %.0f, decision latency %.1f us%n",
+                    i, results[i].placementsPerSecond, results[i].decisionLatencyMicros);
+        }
+        return Measurement.median(results);
+    }
+
+    /**
+     * Metrics of one measurement, as recorded in the baseline. Allocation is
+     * -1 when the JVM cannot count it.
+     */
+    private static class Measurement {
+        double placementsPerSecond;
+        double decisionLatencyMicros;
+        double bytesPerPlacement;
+        final int[] lines = new int[GAMES.length];
+        final int[] pieces = new int[GAMES.length];
+
+        Measurement(Result result) {
+            placementsPerSecond = result.placementsPerSecond();
+            decisionLatencyMicros = result.decisionLatencyMicros();
+            bytesPerPlacement = result.bytesPerPlacement();
+            System.arraycopy(result.lines, 0, lines, 0, GAMES.length);
+            System.arraycopy(result.pieces, 0, pieces, 0, GAMES.length);
+        }
+
+        Measurement(Properties properties) {
+            placementsPerSecond = Double.parseDouble(properties.getProperty("placementsPerSecond"));
+            decisionLatencyMicros = Double.parseDouble(properties.getProperty("decisionLatencyMicros"));
+            bytesPerPlacement = Double.parseDouble(properties.getProperty("bytesPerPlacement", "-1"));
+            for (int g = 0; g < GAMES.length; g++) {
+                pieces[g] = Integer.parseInt(properties.getProperty("game." + g + ".pieces"));
+                lines[g] = Integer.parseInt(properties.getProperty("game." + g + ".lines"));
+            }
+        }
+
+        /**
+         * Median of each metric. Gameplay is deterministic, so it is taken
+         * from the first measurement.
+         */
+        static Measurement median(Measurement[] measurements) {
+            int n = measurements.length;
+            double[] throughput = new double[n];
+            double[] latency = new double[n];
+            double[] allocation = new double[n];
+            for (int i = 0; i < n; i++) {
+                throughput[i] = measurements[i].placementsPerSecond;
+                latency[i] = measurements[i].decisionLatencyMicros;
+                allocation[i] = measurements[i].bytesPerPlacement;
+            }
+            Measurement median = measurements[0];
+            median.placementsPerSecond = median(throughput);
+            median.decisionLatencyMicros = median(latency);
+            Arrays.sort(allocation);
+            median.bytesPerPlacement = allocation[0] < 0 ? -1 : median(allocation);
+            return median;
+        }
+
+        private static double median(double[] values) {
+            Arrays.sort(values);
+            int mid = values.length / 2;
+            return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2;
+        }
+    }
+
+    private static class Result {
+        long placements;
+        long elapsedNanos;
+        long decisionNanos;
+        long allocatedBytes = -1;
+        final int[] lines = new int[GAMES.length];
+        final int[] pieces = new int[GAMES.length];
+
+        double placementsPerSecond() {
+            return placements * 1e9 / elapsedNanos;
+        }
+
+        double decisionLatencyMicros() {
+            return decisionNanos / 1e3 / placements;
+        }
+
+        double bytesPerPlacement() {
+            return allocatedBytes < 0 ? -1 : (double) allocatedBytes / placements;
+        }
+    }
+
+    private static Result runSuite() {
+        Result result = new Result();
+        AutoplayAI ai = new AutoplayAI();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        for (int g = 0; g < GAMES.length; g++) {
+            Game game = new Game(GAMES[g][0]);
+            game.setGarbage(1, (int) GAMES[g][1]);
+            game.start();
+            while (!game.isOver() && game.getPiecesPlaced() < MAX_PIECES) {
+                AutoplayAI.Move move = game.autoplayStep(ai);
+                if (move != null) {
+                    result.decisionNanos += move.decisionNanos;
+                }
+            }
+            result.placements += game.getPiecesPlaced();
+            result.lines[g] = game.getLinesCleared();
+            result.pieces[g] = game.getPiecesPlaced();
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            result.allocatedBytes = allocatedAfter - allocatedBefore;
+        }
+        return result;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void printResult(Measurement result) {
+        for (int g = 0; g < GAMES.length; g++) {
+            System.out.printf("game %d seed %d garbage %d: pieces %d lines %d%n",
+                    g, GAMES[g][0], GAMES[g][1], result.pieces[g], result.lines[g]);
+        }
+        System.out.printf("placements/s %.0f, decision latency %.1f us, allocation %.0f B/placement%n",
+                result.placementsPerSecond, result.decisionLatencyMicros, result.bytesPerPlacement);
+    }
+
+    private static void writeBaseline(Path path, Measurement result) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("# Recorded by PerfRegression --record; throughput and latency depend on the machine.\n");
+            writeProperties(writer, result);
+        }
+    }
+
+    private static void writeProperties(Writer writer, Measurement result) throws IOException {
+        // Locale.ROOT keeps the decimal point parseable by Double.parseDouble in every locale.
+        writer.write(String.format(Locale.ROOT, "placementsPerSecond=%.0f%n", result.placementsPerSecond));
+        writer.write(String.format(Locale.ROOT, "decisionLatencyMicros=%.1f%n", result.decisionLatencyMicros));
+        if (result.bytesPerPlacement >= 0) {
+            writer.write(String.format(Locale.ROOT, "bytesPerPlacement=%.0f%n", result.bytesPerPlacement));
+        }
+        for (int g = 0; g < GAMES.length; g++) {
+            writer.write(String.format(Locale.ROOT, "game.%d.pieces=%d%n", g, result.pieces[g]));
+            writer.write(String.format(Locale.ROOT, "game.%d.lines=%d%n", g, result.lines[g]));
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: PerfRegression [--baseline FILE] [--record] [--forks N] [--throughput-tolerance F]"
+                + " [--latency-tolerance F] [--allocation-tolerance F] [--gameplay-tolerance F]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.Arrays;
+
+/**
+ * Grid of cells stored as a ring buffer of row references.
+ * <p>
+ * Logical row 0 is the top of the board. Rows are never copied cell by cell
+ * when they move: clearing lines only moves the references of the rows above
+ * the cleared ones, and pushing a row in from the bottom just advances the
+ * ring offset. A per-row fill count makes full and empty row checks O(1).
+ */
+public class Playfield {
+
+    private final int width;
+    private final int height;
+    private final int[][] rows;
+    private final int[] filled;
+    private int top = 0;
+
+    public Playfield(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.rows = new int[height][width];
+        this.filled = new int[height];
+    }
+
+    private int physical(int y) {
+        int p = top + y;
+        return p >= height ? p - height : p;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int get(int x, int y) {
+        return rows[physical(y)][x];
+    }
+
+    public void set(int x, int y, int value) {
+        int p = physical(y);
+        int old = rows[p][x];
+        if (old == 0 && value != 0) filled[p]++;
+        else if (old != 0 && value == 0) filled[p]--;
+        rows[p][x] = value;
+    }
+
+    /**
+     * Live cells of logical row {@code y}; callers must not modify it.
+     */
+    public int[] row(int y) {
+        return rows[physical(y)];
+    }
+
+    public boolean isRowFull(int y) {
+        return filled[physical(y)] == width;
+    }
+
+    public boolean isRowEmpty(int y) {
+        return filled[physical(y)] == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < height; i++) {
+            Arrays.fill(rows[i], 0);
+        }
+        Arrays.fill(filled, 0);
+        top = 0;
+    }
+
+    public void copyFrom(Playfield other) {
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(other.rows[other.physical(y)], 0, rows[y], 0, width);
+            filled[y] = other.filled[other.physical(y)];
+        }
+        top = 0;
+    }
+
+    /**
+     * Removes every full row between {@code fromY} and {@code toY} inclusive,
+     * letting the rows above fall down. Only the rows above the lowest cleared
+     * row are touched, and only their references move.
+     *
+     * @return the number of rows removed
+     */
+    public int clearFullRows(int fromY, int toY) {
+        fromY = Math.max(fromY, 0);
+        toY = Math.min(toY, height - 1);
+
+        int lowest = -1;
+        for (int y = toY; y >= fromY; y--) {
+            if (isRowFull(y)) {
+                lowest = y;
+                break;
+            }
+        }
+        if (lowest < 0) return 0;
+
+        int write = lowest;
+        int cleared = 0;
+        for (int read = lowest; read >= 0; read--) {
+            int p = physical(read);
+            if (read >= fromY && filled[p] == width) {
+                cleared++;
+                continue;
+            }
+            if (write != read) {
+                swap(physical(write), p);
+            }
+            write--;
+        }
+        // The full rows have bubbled up to rows 0..cleared-1 and become the new empty rows.
+        for (int y = 0; y < cleared; y++) {
+            int p = physical(y);
+            Arrays.fill(rows[p], 0);
+            filled[p] = 0;
+        }
+        return cleared;
+    }
+
+    private void swap(int a, int b) {
+        int[] row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+        int count = filled[a];
+        filled[a] = filled[b];
+        filled[b] = count;
+    }
+
+    /**
+     * Pushes every row up by one and fills the new bottom row with
+     * {@code value}, leaving a single empty cell at column {@code gap}.
+     *
+     * @return false, without changing the grid, if the top row is not empty
+     */
+    public boolean insertBottomRow(int gap, int value) {
+        if (filled[top] != 0) {
+            return false;
+        }
+        // The empty top row becomes the new bottom row once the ring rotates.
+        int[] row = rows[top];
+        Arrays.fill(row, value);
+        row[gap] = 0;
+        filled[top] = width - 1;
+        top = top + 1 == height ? 0 : top + 1;
+        return true;
+    }
+}
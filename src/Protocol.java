@@ -0,0 +1,147 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary wire format between {@link GameServer} and its clients.
+ * <p>
+ * Clients send single-byte commands. The server answers with state messages
+ * that carry a fixed header (score, lines, pieces placed, the falling piece
+ * and the next piece) followed only by the board cells that changed since
+ * the previous message to that client, as (index, value) byte pairs with
+ * {@code index = y * BOARD_WIDTH + x}. All multi-byte values are big-endian.
+ * <p>
+ * The header also carries {@link #boardChecksum} of the full board, so a
+ * client that mirrors the board from deltas can detect when it has drifted.
+ */
+public final class Protocol {
+
+    public static final byte CMD_LEFT = 1;
+    public static final byte CMD_RIGHT = 2;
+    public static final byte CMD_ROTATE = 3;
+    public static final byte CMD_DOWN = 4;
+    public static final byte CMD_DROP = 5;
+    public static final byte CMD_RESTART = 6;
+
+    public static final byte MSG_STATE = 1;
+    public static final int FLAG_GAME_OVER = 1;
+
+    public static final int OFFSET_TYPE = 0;
+    public static final int OFFSET_FLAGS = 1;
+    public static final int OFFSET_SCORE = 2;
+    public static final int OFFSET_LINES = 6;
+    public static final int OFFSET_PIECES = 10;
+    public static final int OFFSET_PIECE = 14;
+    public static final int OFFSET_X = 15;
+    public static final int OFFSET_Y = 16;
+    public static final int OFFSET_ROTATION = 17;
+    public static final int OFFSET_NEXT = 18;
+    public static final int OFFSET_COUNT = 19;
+    public static final int OFFSET_CHECKSUM = 20;
+    public static final int STATE_HEADER_SIZE = 24;
+
+    public static final int CELLS = Game.BOARD_WIDTH * Game.BOARD_HEIGHT;
+    public static final int MAX_STATE_SIZE = STATE_HEADER_SIZE + 2 * CELLS;
+
+    /**
+     * Number of header fields a sender keeps to detect unchanged states.
+     */
+    public static final int HEADER_FIELDS = 9;
+
+    private Protocol() {
+    }
+
+    /**
+     * Length of the state message starting at {@code offset}, or -1 if the
+     * header is not complete yet.
+     */
+    public static int stateLength(ByteBuffer buffer, int offset, int available) {
+        if (available < STATE_HEADER_SIZE) return -1;
+        return STATE_HEADER_SIZE + 2 * (buffer.get(offset + OFFSET_COUNT) & 0xFF);
+    }
+
+    /**
+     * Checksum of every cell of {@code playfield}, top row first.
+     */
+    public static int boardChecksum(Playfield playfield) {
+        int checksum = 1;
+        for (int y = 0; y < Game.BOARD_HEIGHT; y++) {
+            int[] row = playfield.row(y);
+            for (int x = 0; x < Game.BOARD_WIDTH; x++) {
+                checksum = 31 * checksum + row[x];
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Appends the game's state to {@code out} as a delta against what was
+     * last sent, and records it in {@code sentCells} and {@code sentHeader}.
+     *
+     * @return false, leaving everything untouched, if nothing changed or
+     * {@code out} has no room for a full message
+     */
+    public static boolean writeState(ByteBuffer out, Game game, byte[] sentCells, int[] sentHeader) {
+        if (out.remaining() < MAX_STATE_SIZE) return false;
+
+        Tetromino piece = game.getCurrentPiece();
+        Tetromino next = game.getNextPiece();
+        int flags = game.isOver() ? FLAG_GAME_OVER : 0;
+        int pieceValue = piece == null ? 0 : piece.cellValue();
+        int nextValue = next == null ? 0 : next.cellValue();
+
+        boolean headerChanged = false;
+        headerChanged |= update(sentHeader, 0, flags);
+        headerChanged |= update(sentHeader, 1, game.getScore());
+        headerChanged |= update(sentHeader, 2, game.getLinesCleared());
+        headerChanged |= update(sentHeader, 3, game.getPiecesPlaced());
+        headerChanged |= update(sentHeader, 4, pieceValue);
+        headerChanged |= update(sentHeader, 5, game.getCurrentX());
+        headerChanged |= update(sentHeader, 6, game.getCurrentY());
+        headerChanged |= update(sentHeader, 7, game.getCurrentRotation());
+        headerChanged |= update(sentHeader, 8, nextValue);
+
+        int start = out.position();
+        int count = 0;
+        int checksum = 1;
+        out.position(start + STATE_HEADER_SIZE);
+        Playfield playfield = game.getPlayfield();
+        for (int y = 0; y < Game.BOARD_HEIGHT; y++) {
+            int[] row = playfield.row(y);
+            int base = y * Game.BOARD_WIDTH;
+            for (int x = 0; x < Game.BOARD_WIDTH; x++) {
+                checksum = 31 * checksum + row[x];
+                byte value = (byte) row[x];
+                if (sentCells[base + x] != value) {
+                    sentCells[base + x] = value;
+                    out.put((byte) (base + x));
+                    out.put(value);
+                    count++;
+                }
+            }
+        }
+
+        if (count == 0 && !headerChanged) {
+            out.position(start);
+            return false;
+        }
+
+        out.put(start + OFFSET_TYPE, MSG_STATE);
+        out.put(start + OFFSET_FLAGS, (byte) flags);
+        out.putInt(start + OFFSET_SCORE, game.getScore());
+        out.putInt(start + OFFSET_LINES, game.getLinesCleared());
+        out.putInt(start + OFFSET_PIECES, game.getPiecesPlaced());
+        out.put(start + OFFSET_PIECE, (byte) pieceValue);
+        out.put(start + OFFSET_X, (byte) game.getCurrentX());
+        out.put(start + OFFSET_Y, (byte) game.getCurrentY());
+        out.put(start + OFFSET_ROTATION, (byte) game.getCurrentRotation());
+        out.put(start + OFFSET_NEXT, (byte) nextValue);
+        out.put(start + OFFSET_COUNT, (byte) count);
+        out.putInt(start + OFFSET_CHECKSUM, checksum);
+        return true;
+    }
+
+    private static boolean update(int[] fields, int index, int value) {
+        if (fields[index] == value) return false;
+        fields[index] = value;
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Window that watches a grid of concurrent AI games, e.g. a tournament run.
+ * <p>
+ * Usage: {@code java -cp out Spectator [--columns N] [--rows N] [--cell-size PX]
+ * [--seed S] [--threads N] [--delay MS] [--garbage-every N]}
+ */
+public class Spectator extends JFrame {
+
+    private final SpectatorPanel panel;
+
+    public Spectator(int columns, int rows, int cellSize, long seed, int garbageEvery) {
+        setTitle("Tetris Spectator");
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setResizable(false);
+
+        panel = new SpectatorPanel(columns, rows, cellSize, seed, garbageEvery);
+        add(panel);
+
+        pack();
+        setLocationRelativeTo(null);
+    }
+
+    public static void main(String[] args) {
+        int columns = 6;
+        int rows = 6;
+        int cellSize = 6;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        long delay = 50;
+        int garbageEvery = 0;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--columns":
+                        columns = Integer.parseInt(args[++i]);
+                        break;
+                    case "--rows":
+                        rows = Integer.parseInt(args[++i]);
+                        break;
+                    case "--cell-size":
+                        cellSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--delay":
+                        delay = Long.parseLong(args[++i]);
+                        break;
+                    case "--garbage-every":
+                        garbageEvery = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        usage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            usage();
+            return;
+        }
+
+        int finalColumns = columns;
+        int finalRows = rows;
+        int finalCellSize = cellSize;
+        long finalSeed = seed;
+        int finalThreads = threads;
+        long finalDelay = delay;
+        int finalGarbageEvery = garbageEvery;
+        EventQueue.invokeLater(() -> {
+            Spectator spectator = new Spectator(finalColumns, finalRows, finalCellSize, finalSeed, finalGarbageEvery);
+            spectator.setVisible(true);
+            spectator.panel.start(finalThreads, finalDelay);
+        });
+    }
+
+    private static void usage() {
+        System.err.println("usage: Spectator [--columns N] [--rows N] [--cell-size PX] [--seed S]"
+                + " [--threads N] [--delay MS] [--garbage-every N]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,249 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Shows many headless AI games in a grid of small tiles.
+ * <p>
+ * Games run on a few worker threads and publish a copy of their cells after
+ * every placement. On each frame the event dispatch thread reads every game's
+ * volatile version and, for the games that moved on, copies the published
+ * cells under the game's lock and redraws only the cells that differ from
+ * what it last drew, using cached block images, into one shared back buffer.
+ * The changed rows of each tile are then copied to the screen on their own
+ * with {@link #paintImmediately(int, int, int, int)}, since queued repaints
+ * would be merged into one bounding rectangle spanning every tile between
+ * them. A frame's cost therefore follows the cells that changed, not the
+ * size of the grid.
+ */
+public class SpectatorPanel extends JComponent {
+
+    private static final int FRAME_DELAY = 33;
+    private static final int HEADER_HEIGHT = 12;
+    private static final int GAP = 6;
+    private static final int CELLS = Game.BOARD_WIDTH * Game.BOARD_HEIGHT;
+    private static final Font HEADER_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+
+    private final int columns;
+    private final int cellSize;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final long seed;
+    private final int garbageEveryPieces;
+
+    private final BlockImages blocks;
+    private final BufferedImage backBuffer;
+    private final Graphics2D backGraphics;
+    private final GameView[] views;
+    private final int[] snapshot = new int[CELLS];
+    private final Timer renderTimer;
+
+    private Thread[] workers = new Thread[0];
+    private volatile boolean isRunning = false;
+
+    /**
+     * State of one game shared between its worker and the renderer. The
+     * worker owns {@code game}; the published fields are guarded by the view's
+     * monitor; the drawn fields are only touched by the event dispatch thread.
+     */
+    private static class GameView {
+        Game game;
+        int round = 0;
+
+        final int[] cells = new int[CELLS];
+        int lines = 0;
+        int publishedRound = 0;
+        volatile long version = 0;
+
+        final int[] drawn = new int[CELLS];
+        long drawnVersion = -1;
+        int drawnLines = -1;
+        int drawnRound = -1;
+
+        synchronized void publish() {
+            Playfield playfield = game.getPlayfield();
+            for (int y = 0; y < Game.BOARD_HEIGHT; y++) {
+                System.arraycopy(playfield.row(y), 0, cells, y * Game.BOARD_WIDTH, Game.BOARD_WIDTH);
+            }
+            lines = game.getLinesCleared();
+            publishedRound = round;
+            version++;
+        }
+    }
+
+    public SpectatorPanel(int columns, int rows, int cellSize, long seed, int garbageEveryPieces) {
+        this.columns = columns;
+        this.cellSize = cellSize;
+        this.tileWidth = Game.BOARD_WIDTH * cellSize + GAP;
+        this.tileHeight = HEADER_HEIGHT + Game.BOARD_HEIGHT * cellSize + GAP;
+        this.seed = seed;
+        this.garbageEveryPieces = garbageEveryPieces;
+
+        int width = columns * tileWidth + GAP;
+        int height = rows * tileHeight + GAP;
+        setPreferredSize(new Dimension(width, height));
+        setOpaque(true);
+
+        blocks = new BlockImages(cellSize);
+        backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        backGraphics = backBuffer.createGraphics();
+        backGraphics.setColor(Color.DARK_GRAY);
+        backGraphics.fillRect(0, 0, width, height);
+        backGraphics.setFont(HEADER_FONT);
+
+        views = new GameView[columns * rows];
+        for (int i = 0; i < views.length; i++) {
+            GameView view = new GameView();
+            view.game = newGame(i, 0);
+            view.publish();
+            Arrays.fill(view.drawn, -1);
+            views[i] = view;
+        }
+
+        renderTimer = new Timer(FRAME_DELAY, e -> renderChanges());
+    }
+
+    private Game newGame(int index, int round) {
+        Game game = new Game(seed + index + (long) round * views.length);
+        game.setGarbage(1, garbageEveryPieces);
+        game.start();
+        return game;
+    }
+
+    /**
+     * Starts the games on {@code threads} workers. Each worker steps its games
+     * in turn and then sleeps {@code delayMillis}; 0 runs them flat out.
+     */
+    public void start(int threads, long delayMillis) {
+        stop();
+        isRunning = true;
+        workers = new Thread[Math.max(1, Math.min(threads, views.length))];
+        for (int t = 0; t < workers.length; t++) {
+            int first = t;
+            int step = workers.length;
+            workers[t] = new Thread(() -> runGames(first, step, delayMillis), "spectator-worker-" + t);
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+        renderTimer.start();
+    }
+
+    /**
+     * Stops the workers and waits for them, so a following {@link #start}
+     * never has two threads stepping the same game.
+     */
+    public void stop() {
+        isRunning = false;
+        renderTimer.stop();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        workers = new Thread[0];
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runGames(int first, int step, long delayMillis) {
+        AutoplayAI ai = new AutoplayAI();
+        while (isRunning) {
+            for (int i = first; i < views.length; i += step) {
+                GameView view = views[i];
+                view.game.autoplayStep(ai);
+                if (view.game.isOver()) {
+                    view.round++;
+                    view.game = newGame(i, view.round);
+                }
+                view.publish();
+            }
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void renderChanges() {
+        for (int i = 0; i < views.length; i++) {
+            GameView view = views[i];
+            if (view.version == view.drawnVersion) continue;
+            int lines;
+            int round;
+            synchronized (view) {
+                System.arraycopy(view.cells, 0, snapshot, 0, CELLS);
+                lines = view.lines;
+                round = view.publishedRound;
+                view.drawnVersion = view.version;
+            }
+
+            int originX = GAP + (i % columns) * tileWidth;
+            int originY = GAP + (i / columns) * tileHeight;
+            int cellsY = originY + HEADER_HEIGHT;
+
+            int dirtyTop = -1;
+            if (lines != view.drawnLines || round != view.drawnRound) {
+                drawHeader(i, round, lines, originX, originY);
+                view.drawnLines = lines;
+                view.drawnRound = round;
+                dirtyTop = originY;
+            }
+
+            int minRow = Game.BOARD_HEIGHT;
+            int maxRow = -1;
+            int[] drawn = view.drawn;
+            for (int k = 0; k < CELLS; k++) {
+                int cell = snapshot[k];
+                if (cell != drawn[k]) {
+                    int row = k / Game.BOARD_WIDTH;
+                    int col = k - row * Game.BOARD_WIDTH;
+                    blocks.draw(backGraphics, originX + col * cellSize, cellsY + row * cellSize, cell);
+                    drawn[k] = cell;
+                    if (row < minRow) minRow = row;
+                    maxRow = row;
+                }
+            }
+            int dirtyBottom = dirtyTop < 0 ? -1 : cellsY;
+            if (maxRow >= 0) {
+                if (dirtyTop < 0) dirtyTop = cellsY + minRow * cellSize;
+                dirtyBottom = cellsY + (maxRow + 1) * cellSize;
+            }
+            if (dirtyTop >= 0) {
+                // Already on the event dispatch thread, so the copy happens now and stays this small.
+                paintImmediately(originX, dirtyTop, Game.BOARD_WIDTH * cellSize, dirtyBottom - dirtyTop);
+            }
+        }
+    }
+
+    private void drawHeader(int index, int round, int lines, int x, int y) {
+        backGraphics.setColor(Color.DARK_GRAY);
+        backGraphics.fillRect(x, y, tileWidth - GAP, HEADER_HEIGHT);
+        backGraphics.setColor(Color.WHITE);
+        backGraphics.drawString(index + "." + round + " L" + lines, x + 1, y + HEADER_HEIGHT - 2);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            g.drawImage(backBuffer, 0, 0, null);
+            return;
+        }
+        int x2 = clip.x + clip.width;
+        int y2 = clip.y + clip.height;
+        g.drawImage(backBuffer, clip.x, clip.y, x2, y2, clip.x, clip.y, x2, y2, null);
+    }
+}
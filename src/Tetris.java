@@ -5,6 +5,8 @@ public class Tetris extends JFrame {
 
     private Board board;
     private JButton autoplayButton;
+    private JButton survivalButton;
+    private JButton statsButton;
 
     public Tetris() {
         initUI();
@@ -49,6 +51,20 @@ public class Tetris extends JFrame {
             board.requestFocusInWindow();
         });
 
+        survivalButton = new JButton("Survival: OFF");
+        survivalButton.addActionListener(e -> {
+            board.toggleSurvival();
+            survivalButton.setText(board.isSurvival() ? "Survival: ON" : "Survival: OFF");
+            board.requestFocusInWindow();
+        });
+
+        statsButton = new JButton("Stats: OFF");
+        statsButton.addActionListener(e -> {
+            board.togglePerfOverlay();
+            statsButton.setText(board.isPerfOverlayVisible() ? "Stats: ON" : "Stats: OFF");
+            board.requestFocusInWindow();
+        });
+
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         mainPanel.add(board, BorderLayout.CENTER);
@@ -65,6 +81,8 @@ public class Tetris extends JFrame {
         startButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         pauseButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         autoplayButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        survivalButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        statsButton.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         sidePanel.add(nextPieceLabel);
         sidePanel.add(Box.createRigidArea(new Dimension(0, 5)));
@@ -79,6 +97,10 @@ public class Tetris extends JFrame {
         sidePanel.add(pauseButton);
         sidePanel.add(Box.createRigidArea(new Dimension(0, 5)));
         sidePanel.add(autoplayButton);
+        sidePanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        sidePanel.add(survivalButton);
+        sidePanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        sidePanel.add(statsButton);
 
 
         mainPanel.add(sidePanel, BorderLayout.EAST);
@@ -1,28 +1,32 @@
-import java.awt.*;
+import java.util.Random;
 
+/**
+ * The seven pieces. Colors are kept as packed RGB so that the game rules and
+ * the AI can run without loading any AWT classes; the Swing view converts them.
+ */
 public enum Tetromino {
-    I_SHAPE(new int[][]{{1, 1, 1, 1}}, new Color(0, 240, 240)),
-    J_SHAPE(new int[][]{{1, 0, 0}, {1, 1, 1}}, new Color(0, 0, 240)),
-    L_SHAPE(new int[][]{{0, 0, 1}, {1, 1, 1}}, new Color(240, 160, 0)),
-    O_SHAPE(new int[][]{{1, 1}, {1, 1}}, new Color(240, 240, 0)),
-    S_SHAPE(new int[][]{{0, 1, 1}, {1, 1, 0}}, new Color(0, 240, 0)),
-    T_SHAPE(new int[][]{{0, 1, 0}, {1, 1, 1}}, new Color(160, 0, 240)),
-    Z_SHAPE(new int[][]{{1, 1, 0}, {0, 1, 1}}, new Color(240, 0, 0));
+    I_SHAPE(new int[][]{{1, 1, 1, 1}}, 0x00F0F0),
+    J_SHAPE(new int[][]{{1, 0, 0}, {1, 1, 1}}, 0x0000F0),
+    L_SHAPE(new int[][]{{0, 0, 1}, {1, 1, 1}}, 0xF0A000),
+    O_SHAPE(new int[][]{{1, 1}, {1, 1}}, 0xF0F000),
+    S_SHAPE(new int[][]{{0, 1, 1}, {1, 1, 0}}, 0x00F000),
+    T_SHAPE(new int[][]{{0, 1, 0}, {1, 1, 1}}, 0xA000F0),
+    Z_SHAPE(new int[][]{{1, 1, 0}, {0, 1, 1}}, 0xF00000);
+
+    private static final Tetromino[] VALUES = values();
 
     public final int[][] shape;
-    public final Color color;
-    private int currentRotation;
-    private int[][][] rotations;
+    public final int rgb;
+    private final int[][][] rotations;
 
-    Tetromino(int[][] shape, Color color) {
+    Tetromino(int[][] shape, int rgb) {
         this.shape = shape;
-        this.color = color;
-        this.currentRotation = 0;
-        generateRotations();
+        this.rgb = rgb;
+        this.rotations = generateRotations(shape);
     }
 
-    private void generateRotations() {
-        rotations = new int[4][][];
+    private static int[][][] generateRotations(int[][] shape) {
+        int[][][] rotations = new int[4][][];
         rotations[0] = shape;
 
         int[][] currentShape = shape;
@@ -30,9 +34,10 @@ public enum Tetromino {
             currentShape = rotateMatrix(currentShape);
             rotations[i] = currentShape;
         }
+        return rotations;
     }
 
-    private int[][] rotateMatrix(int[][] matrix) {
+    private static int[][] rotateMatrix(int[][] matrix) {
         int rows = matrix.length;
         int cols = matrix[0].length;
         int[][] newMatrix = new int[cols][rows];
@@ -44,10 +49,6 @@ public enum Tetromino {
         return newMatrix;
     }
 
-    public int[][] getCurrentShape() {
-        return rotations[currentRotation];
-    }
-
     public int[][] getShapeForRotation(int rotationIndex) {
         if (rotationIndex < 0 || rotationIndex >= 4) {
             rotationIndex = (rotationIndex % 4 + 4) % 4;
@@ -55,15 +56,18 @@ public enum Tetromino {
         return rotations[rotationIndex];
     }
 
-    public void setRotation(int rotation) {
-        this.currentRotation = rotation % 4;
+    /**
+     * Value stored in a board cell occupied by this piece; 0 means empty.
+     */
+    public int cellValue() {
+        return ordinal() + 1;
     }
 
-    public int getRotation() {
-        return currentRotation;
+    public static Tetromino fromCellValue(int cellValue) {
+        return VALUES[cellValue - 1];
     }
 
-    public static Tetromino getRandomPiece() {
-        return values()[(int) (Math.random() * values().length)];
+    public static Tetromino getRandomPiece(Random random) {
+        return VALUES[random.nextInt(VALUES.length)];
     }
 }
\ No newline at end of file